@@ -0,0 +1,57 @@
+package com.emotionmusic.config;
+
+import com.emotionmusic.service.SongCatalogCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.UUID;
+
+/**
+ * Answers conditional GETs on catalog and playlist routes before the handler runs. Every
+ * catalog or playlist change bumps the catalog cache version, so a weak ETag built from it
+ * (plus a per-process id, as versions restart at zero) stays valid exactly as long as no
+ * such change happened; Last-Modified is the time of that change. With the catalog cache
+ * disabled or over its size limit, requests pass through unvalidated.
+ */
+@Component
+public class CatalogConditionalGetInterceptor implements HandlerInterceptor {
+
+    private static final String PROCESS_ID = Long.toHexString(UUID.randomUUID().getMostSignificantBits());
+
+    @Autowired
+    private SongCatalogCache catalogCache;
+
+    @Value("${app.http.cache-control.catalog:no-cache}")
+    private String catalogCacheControl;
+
+    @Value("${app.http.cache-control.playlists:no-cache}")
+    private String playlistCacheControl;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+        boolean playlist = request.getRequestURI().startsWith(request.getContextPath() + "/playlists");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, playlist ? playlistCacheControl : catalogCacheControl);
+        if (!catalogCache.isLoadable()) {
+            // Without a snapshot a reload can't tell what changed in the database, so the
+            // version doesn't track the data and no validators are sent
+            return true;
+        }
+
+        // Read before the handler, so a change while it runs only makes the ETag stale, never too new
+        String etag = "W/\"" + PROCESS_ID + "-" + catalogCache.version() + "\"";
+        long lastModified = catalogCache.lastModified();
+
+        // Sets ETag and Last-Modified, and a 304 when the client's copy is current
+        return !new ServletWebRequest(request, response).checkNotModified(etag, lastModified);
+    }
+}
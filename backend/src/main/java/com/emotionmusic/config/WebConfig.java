@@ -1,19 +1,33 @@
 package com.emotionmusic.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private CatalogConditionalGetInterceptor catalogConditionalGetInterceptor;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
                 .allowedOriginPatterns("http://localhost:*") // Allow any localhost port
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Cursor", "ETag")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Responses that only change with the catalog; random picks, audio and job status are excluded
+        registry.addInterceptor(catalogConditionalGetInterceptor)
+                .addPathPatterns("/songs", "/songs/emotion/*", "/songs/search", "/songs/suggest",
+                        "/songs/{id:[0-9]+}", "/playlists/emotion/*");
+    }
+}
@@ -0,0 +1,41 @@
+package com.emotionmusic.config;
+
+import com.emotionmusic.controller.EmotionStreamHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private EmotionStreamHandler emotionStreamHandler;
+
+    @Value("${app.emotion.frame.max-bytes:2097152}")
+    private int maxFrameBytes;
+
+    @Value("${app.emotion.stream.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(emotionStreamHandler, "/emotion/stream")
+                .setAllowedOriginPatterns("http://localhost:*"); // Allow any localhost port
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxFrameBytes);
+        // Base64 data URLs are about a third larger than the raw frame
+        container.setMaxTextMessageBufferSize(maxFrameBytes / 3 * 4 + 64);
+        container.setMaxSessionIdleTimeout(idleTimeoutMs);
+        return container;
+    }
+}
@@ -3,11 +3,19 @@ package com.emotionmusic.controller;
 import com.emotionmusic.dto.EmotionDetectionRequest;
 import com.emotionmusic.dto.EmotionDetectionResponse;
 import com.emotionmusic.service.EmotionDetectionService;
+import com.emotionmusic.service.FrameBufferPool;
+import com.emotionmusic.service.FrameSupersededException;
+import com.emotionmusic.service.ImageFrame;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.Map;
 
 @RestController
@@ -18,7 +26,10 @@ public class EmotionController {
     @Autowired
     private EmotionDetectionService emotionDetectionService;
 
-    @PostMapping("/detect")
+    @Autowired
+    private FrameBufferPool frameBufferPool;
+
+    @PostMapping(value = "/detect", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<EmotionDetectionResponse> detectEmotion(
             @Valid @RequestBody EmotionDetectionRequest request) {
         try {
@@ -29,6 +40,8 @@ public class EmotionController {
             EmotionDetectionResponse response = emotionDetectionService.detectEmotion(request);
             System.out.println("Emotion detection successful: " + response.getEmotion());
             return ResponseEntity.ok(response);
+        } catch (FrameSupersededException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             System.err.println("Error in emotion detection: " + e.getMessage());
             e.printStackTrace();
@@ -36,6 +49,58 @@ public class EmotionController {
         }
     }
 
+    // Raw image body; the session id comes from ?sessionId= or the X-Session-Id header
+    @PostMapping(value = "/detect", consumes = {
+            MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, "image/webp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<EmotionDetectionResponse> detectEmotionFromBytes(
+            HttpServletRequest request,
+            @RequestParam(value = "sessionId", required = false) String sessionId,
+            @RequestHeader(value = "X-Session-Id", required = false) String sessionHeader) {
+        String contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE.equals(request.getContentType())
+                ? null : request.getContentType();
+        ImageFrame frame = null;
+        try {
+            frame = frameBufferPool.read(request.getInputStream(), request.getContentLengthLong(), contentType);
+            if (frame.getLength() == 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(emotionDetectionService.detectEmotion(
+                    frame, sessionId != null ? sessionId : sessionHeader));
+        } catch (FrameBufferPool.FrameTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (FrameSupersededException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            System.err.println("Error in emotion detection: " + e.getMessage());
+            return ResponseEntity.status(500).build();
+        } finally {
+            frameBufferPool.release(frame);
+        }
+    }
+
+    @PostMapping(value = "/detect", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<EmotionDetectionResponse> detectEmotionFromMultipart(
+            @RequestParam("image") MultipartFile image,
+            @RequestParam(value = "sessionId", required = false) String sessionId) {
+        ImageFrame frame = null;
+        try (InputStream in = image.getInputStream()) {
+            frame = frameBufferPool.read(in, image.getSize(), image.getContentType());
+            if (frame.getLength() == 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(emotionDetectionService.detectEmotion(frame, sessionId));
+        } catch (FrameBufferPool.FrameTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (FrameSupersededException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            System.err.println("Error in emotion detection: " + e.getMessage());
+            return ResponseEntity.status(500).build();
+        } finally {
+            frameBufferPool.release(frame);
+        }
+    }
+
     @GetMapping("/statistics")
     public ResponseEntity<Map<String, Long>> getEmotionStatistics() {
         Map<String, Long> statistics = emotionDetectionService.getEmotionStatistics();
@@ -0,0 +1,223 @@
+package com.emotionmusic.controller;
+
+import com.emotionmusic.dto.EmotionDetectionResponse;
+import com.emotionmusic.dto.EmotionStreamUpdate;
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.service.EmotionDetectionService;
+import com.emotionmusic.service.FrameSupersededException;
+import com.emotionmusic.service.ImageFrame;
+import com.emotionmusic.service.PlaylistService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persistent detection channel at {@code /emotion/stream}. Clients send frames as binary
+ * messages (or base64 text), and the server pushes an {@link EmotionStreamUpdate} with the
+ * matching playlist only when the session's emotion changes.
+ * <p>
+ * Each connection holds at most one frame waiting and one in detection; frames arriving in
+ * between replace the waiting one. Outbound messages go through a bounded send buffer.
+ */
+@Component
+public class EmotionStreamHandler extends AbstractWebSocketHandler {
+
+    @Autowired
+    private EmotionDetectionService emotionDetectionService;
+
+    @Autowired
+    private PlaylistService playlistService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.emotion.stream.workers:16}")
+    private int workers;
+
+    @Value("${app.emotion.stream.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${app.emotion.stream.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.emotion.stream.send-buffer-bytes:524288}")
+    private int sendBufferBytes;
+
+    private final Map<String, StreamState> connections = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Counter droppedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "emotion-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("app.emotion.stream.connections", connections, Map::size).register(meterRegistry);
+        droppedCounter = Counter.builder("app.emotion.stream.dropped")
+                .description("Frames replaced by a newer frame before detection started").register(meterRegistry);
+        rejectedCounter = Counter.builder("app.emotion.stream.rejected")
+                .description("Detections deferred because the stream executor was saturated").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String sessionId = UriComponentsBuilder.fromUri(session.getUri()).build()
+                .getQueryParams().getFirst("sessionId");
+        WebSocketSession out = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferBytes,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+        connections.put(session.getId(), new StreamState(out, sessionId != null ? sessionId : session.getId()));
+        System.out.println("Emotion stream opened for session " + sessionId);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        ByteBuffer payload = message.getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        offer(session, ImageFrame.fromBytes(bytes, bytes.length, null));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        // Base64 frame or data URL, as sent to the JSON endpoint
+        offer(session, ImageFrame.fromBase64(message.getPayload()));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        StreamState state = connections.remove(session.getId());
+        if (state != null) {
+            state.open = false;
+            state.latest.set(null);
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        System.err.println("Emotion stream transport error: " + exception.getMessage());
+    }
+
+    private void offer(WebSocketSession session, ImageFrame frame) {
+        StreamState state = connections.get(session.getId());
+        if (state == null) {
+            return;
+        }
+        if (state.latest.getAndSet(frame) != null) {
+            droppedCounter.increment();
+        }
+        schedule(state);
+    }
+
+    private void schedule(StreamState state) {
+        if (!state.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(state));
+        } catch (RejectedExecutionException e) {
+            // The frame stays waiting and is picked up with the connection's next message
+            state.draining.set(false);
+            rejectedCounter.increment();
+        }
+    }
+
+    private void drain(StreamState state) {
+        try {
+            ImageFrame frame;
+            while (state.open && (frame = state.latest.getAndSet(null)) != null) {
+                detect(state, frame);
+            }
+        } finally {
+            state.draining.set(false);
+        }
+        // A frame may have arrived between the last poll and releasing the flag
+        if (state.open && state.latest.get() != null) {
+            schedule(state);
+        }
+    }
+
+    private void detect(StreamState state, ImageFrame frame) {
+        EmotionDetectionResponse response;
+        try {
+            response = emotionDetectionService.detectEmotion(frame, state.sessionId);
+        } catch (FrameSupersededException e) {
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Error in streamed emotion detection: " + e.getMessage());
+            return;
+        }
+
+        if (response.getEmotion() == state.lastEmotion) {
+            return;
+        }
+        state.lastEmotion = response.getEmotion();
+
+        List<SongDTO> playlist;
+        try {
+            playlist = playlistService.getPlaylistByEmotion(response.getEmotion());
+        } catch (RuntimeException e) {
+            System.err.println("Error loading playlist for stream: " + e.getMessage());
+            playlist = List.of();
+        }
+
+        try {
+            String json = objectMapper.writeValueAsString(new EmotionStreamUpdate(response, playlist));
+            state.out.sendMessage(new TextMessage(json));
+        } catch (Exception e) {
+            System.err.println("Error sending emotion update: " + e.getMessage());
+        }
+    }
+
+    private static final class StreamState {
+        private final WebSocketSession out;
+        private final String sessionId;
+        private final AtomicReference<ImageFrame> latest = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile EmotionType lastEmotion;
+        private volatile boolean open = true;
+
+        private StreamState(WebSocketSession out, String sessionId) {
+            this.out = out;
+            this.sessionId = sessionId;
+        }
+    }
+}
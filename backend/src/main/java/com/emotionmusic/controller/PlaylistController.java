@@ -1,12 +1,19 @@
 package com.emotionmusic.controller;
 
+import com.emotionmusic.dto.PlaylistChangeRequest;
+import com.emotionmusic.dto.PlaylistChangeResult;
+import com.emotionmusic.dto.Recommendation;
 import com.emotionmusic.dto.SongDTO;
 import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.service.EmotionRecommender;
 import com.emotionmusic.service.PlaylistService;
+import com.emotionmusic.service.SongCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
 import java.util.List;
 
 @RestController
@@ -17,12 +24,37 @@ public class PlaylistController {
     @Autowired
     private PlaylistService playlistService;
 
+    @Autowired
+    private EmotionRecommender recommender;
+
+    @Value("${app.pagination.default-limit:100}")
+    private int defaultPageLimit;
+
+    @Value("${app.pagination.max-limit:500}")
+    private int maxPageLimit;
+
+    @Value("${app.playlists.max-change-ids:10000}")
+    private int maxChangeIds;
+
+    @Value("${app.recommendations.default-count:20}")
+    private int defaultRecommendationCount;
+
+    @Value("${app.recommendations.max-count:200}")
+    private int maxRecommendationCount;
+
     @GetMapping("/emotion/{emotion}")
-    public ResponseEntity<List<SongDTO>> getPlaylistByEmotion(@PathVariable String emotion) {
+    public ResponseEntity<List<SongDTO>> getPlaylistByEmotion(
+            @PathVariable String emotion,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
         try {
             EmotionType emotionType = EmotionType.fromString(emotion);
-            List<SongDTO> playlist = playlistService.getPlaylistByEmotion(emotionType);
-            return ResponseEntity.ok(playlist);
+            int size = limit != null ? limit : defaultPageLimit;
+            if (size < 1 || size > maxPageLimit) {
+                return ResponseEntity.badRequest().build();
+            }
+            return SongPageResponses.ok(
+                    playlistService.getPlaylistPage(emotionType, SongCursor.decode(cursor), size));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -39,6 +71,24 @@ public class PlaylistController {
         }
     }
 
+    // Adds and removes many songs in one transaction; unknown song ids are reported, not rejected
+    @PostMapping("/emotion/{emotion}/songs")
+    public ResponseEntity<PlaylistChangeResult> changeSongs(
+            @PathVariable String emotion,
+            @RequestBody PlaylistChangeRequest request) {
+        try {
+            EmotionType emotionType = EmotionType.fromString(emotion);
+            List<Long> add = request.getAdd() != null ? request.getAdd() : Collections.emptyList();
+            List<Long> remove = request.getRemove() != null ? request.getRemove() : Collections.emptyList();
+            if (add.size() + remove.size() > maxChangeIds || add.contains(null) || remove.contains(null)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(playlistService.changeSongs(emotionType, add, remove));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/emotion/{emotion}/songs/{songId}")
     public ResponseEntity<Void> addSongToPlaylist(
             @PathVariable String emotion,
@@ -64,4 +114,22 @@ public class PlaylistController {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    // Next-up songs from the session's detected emotions; ?emotion= overrides the last detection
+    @GetMapping("/recommendations")
+    public ResponseEntity<Recommendation> recommend(
+            @RequestParam("sessionId") String sessionId,
+            @RequestParam(value = "emotion", required = false) String emotion,
+            @RequestParam(value = "count", required = false) Integer count) {
+        try {
+            EmotionType emotionType = emotion != null ? EmotionType.fromString(emotion) : null;
+            int size = count != null ? count : defaultRecommendationCount;
+            if (size < 1 || size > maxRecommendationCount) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(recommender.recommend(sessionId, emotionType, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
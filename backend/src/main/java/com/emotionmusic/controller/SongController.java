@@ -5,8 +5,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,14 +14,23 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.emotionmusic.dto.BulkDeleteStatus;
+import com.emotionmusic.dto.MetadataBackfillStatus;
 import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.dto.SongSuggestion;
 import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.service.SongCursor;
 import com.emotionmusic.service.SongService;
+import com.emotionmusic.service.SongStreamingService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/songs")
@@ -32,33 +40,73 @@ public class SongController {
     @Autowired
     private SongService songService;
 
+    @Autowired
+    private SongStreamingService songStreamingService;
+
+    @Value("${app.pagination.default-limit:100}")
+    private int defaultPageLimit;
+
+    @Value("${app.pagination.max-limit:500}")
+    private int maxPageLimit;
+
+    @Value("${app.songs.random.default-count:20}")
+    private int defaultRandomCount;
+
+    @Value("${app.songs.random.max-count:200}")
+    private int maxRandomCount;
+
+    @Value("${app.search.suggest.top-k:10}")
+    private int maxSuggestions;
+
     @GetMapping("/test")
     public ResponseEntity<String> testConnection() {
         return ResponseEntity.ok("Backend connection successful!");
     }
 
     @GetMapping
-    public ResponseEntity<List<SongDTO>> getAllSongs() {
-        List<SongDTO> songs = songService.getAllSongs();
-        return ResponseEntity.ok(songs);
+    public ResponseEntity<List<SongDTO>> getAllSongs(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            int size = limit != null ? limit : defaultPageLimit;
+            if (size < 1 || size > maxPageLimit) {
+                return ResponseEntity.badRequest().build();
+            }
+            return SongPageResponses.ok(songService.getSongs(SongCursor.decode(cursor), size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/emotion/{emotion}")
-    public ResponseEntity<List<SongDTO>> getSongsByEmotion(@PathVariable String emotion) {
+    public ResponseEntity<List<SongDTO>> getSongsByEmotion(
+            @PathVariable String emotion,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
         try {
             EmotionType emotionType = EmotionType.fromString(emotion);
-            List<SongDTO> songs = songService.getSongsByEmotion(emotionType);
-            return ResponseEntity.ok(songs);
+            int size = limit != null ? limit : defaultPageLimit;
+            if (size < 1 || size > maxPageLimit) {
+                return ResponseEntity.badRequest().build();
+            }
+            return SongPageResponses.ok(songService.getSongsByEmotion(emotionType, SongCursor.decode(cursor), size));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/emotion/{emotion}/random")
-    public ResponseEntity<List<SongDTO>> getRandomSongsByEmotion(@PathVariable String emotion) {
+    public ResponseEntity<List<SongDTO>> getRandomSongsByEmotion(
+            @PathVariable String emotion,
+            @RequestParam(value = "count", required = false) Integer count,
+            @RequestParam(value = "sessionId", required = false) String sessionId) {
         try {
             EmotionType emotionType = EmotionType.fromString(emotion);
-            List<SongDTO> songs = songService.getRandomSongsByEmotion(emotionType);
+            int size = count != null ? count : defaultRandomCount;
+            if (size < 1 || size > maxRandomCount) {
+                return ResponseEntity.badRequest().build();
+            }
+            List<SongDTO> songs = songService.getRandomSongsByEmotion(emotionType, size, sessionId);
             return ResponseEntity.ok(songs);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
@@ -89,48 +137,44 @@ public class SongController {
         }
     }
 
-    @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> downloadSong(@PathVariable Long id) {
+    // Moves the song to another emotion; its playlist entries follow within the flush interval
+    @PutMapping("/{id}/emotion")
+    public ResponseEntity<SongDTO> updateEmotion(@PathVariable Long id, @RequestParam("emotion") String emotion) {
         try {
-            Resource resource = songService.loadSongAsResource(id);
-            Optional<SongDTO> songOpt = songService.getSongById(id);
-            
-            if (songOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            SongDTO song = songOpt.get();
-            String contentType = song.getMimeType() != null ? song.getMimeType() : "application/octet-stream";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                           "attachment; filename=\"" + song.getTitle() + "\"")
-                    .body(resource);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            EmotionType emotionType = EmotionType.fromString(emotion);
+            return songService.updateEmotion(id, emotionType)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
+    @GetMapping("/{id}/download")
+    public void downloadSong(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) {
+        serveSong(id, true, request, response);
+    }
+
     @GetMapping("/{id}/stream")
-    public ResponseEntity<Resource> streamSong(@PathVariable Long id) {
+    public void streamSong(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) {
+        serveSong(id, false, request, response);
+    }
+
+    private void serveSong(Long id, boolean attachment, HttpServletRequest request, HttpServletResponse response) {
+        Optional<SongDTO> songOpt = songService.getSongById(id);
+        if (songOpt.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
         try {
-            Resource resource = songService.loadSongAsResource(id);
-            Optional<SongDTO> songOpt = songService.getSongById(id);
-            
-            if (songOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            SongDTO song = songOpt.get();
-            String contentType = song.getMimeType() != null ? song.getMimeType() : "application/octet-stream";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                    .body(resource);
+            songStreamingService.serve(songOpt.get(), attachment, request, response);
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            // Client aborts surface here too; only report errors we can still send
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
         }
     }
 
@@ -146,19 +190,64 @@ public class SongController {
         }
     }
 
+    // Runs as a background job; poll GET /songs/all/deletion for progress
     @DeleteMapping("/all")
-    public ResponseEntity<Void> deleteAllSongs() {
+    public ResponseEntity<BulkDeleteStatus> deleteAllSongs() {
         try {
-            songService.deleteAllSongs();
-            return ResponseEntity.noContent().build();
+            if (!songService.deleteAllSongs()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(songService.getDeleteAllStatus());
+            }
+            return ResponseEntity.accepted().body(songService.getDeleteAllStatus());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @GetMapping("/all/deletion")
+    public ResponseEntity<BulkDeleteStatus> getDeleteAllStatus() {
+        BulkDeleteStatus status = songService.getDeleteAllStatus();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    // Extracts duration, bitrate, sample rate and channels for songs that have none yet
+    @PostMapping("/metadata/backfill")
+    public ResponseEntity<MetadataBackfillStatus> startMetadataBackfill() {
+        if (!songService.startMetadataBackfill()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(songService.getMetadataBackfillStatus());
+        }
+        return ResponseEntity.accepted().body(songService.getMetadataBackfillStatus());
+    }
+
+    @GetMapping("/metadata/backfill")
+    public ResponseEntity<MetadataBackfillStatus> getMetadataBackfillStatus() {
+        MetadataBackfillStatus status = songService.getMetadataBackfillStatus();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<SongDTO>> searchSongs(@RequestParam String q) {
-        List<SongDTO> songs = songService.searchSongs(q);
-        return ResponseEntity.ok(songs);
+    public ResponseEntity<List<SongDTO>> searchSongs(
+            @RequestParam String q,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            int size = limit != null ? limit : defaultPageLimit;
+            if (size < 1 || size > maxPageLimit) {
+                return ResponseEntity.badRequest().build();
+            }
+            return SongPageResponses.ok(songService.searchSongs(q, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SongSuggestion>> suggestSongs(
+            @RequestParam String prefix,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        int size = limit != null ? limit : maxSuggestions;
+        if (size < 1 || size > maxSuggestions) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(songService.suggest(prefix, size));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package com.emotionmusic.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.emotionmusic.dto.ImportJobStatus;
+import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.service.SongImportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController
+@RequestMapping("/songs/import")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000"})
+public class SongImportController {
+
+    @Autowired
+    private SongImportService songImportService;
+
+    // The archive is the raw request body, so it isn't bound by the multipart size limit
+    @PostMapping(consumes = "application/zip")
+    public ResponseEntity<ImportJobStatus> importZip(
+            HttpServletRequest request,
+            @RequestParam(value = "emotion", required = false) String emotion) {
+        try {
+            return ResponseEntity.accepted().body(
+                    songImportService.importZip(request.getInputStream(), defaultEmotion(emotion)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping(params = "directory")
+    public ResponseEntity<ImportJobStatus> importDirectory(
+            @RequestParam("directory") String directory,
+            @RequestParam(value = "emotion", required = false) String emotion) {
+        try {
+            return ResponseEntity.accepted().body(
+                    songImportService.importDirectory(directory, defaultEmotion(emotion)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobStatus> getImport(@PathVariable String id) {
+        ImportJobStatus status = songImportService.getJob(id);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    // For files not inside a folder named after an emotion
+    private static EmotionType defaultEmotion(String emotion) {
+        return emotion != null ? EmotionType.fromString(emotion) : EmotionType.NEUTRAL;
+    }
+}
@@ -0,0 +1,24 @@
+package com.emotionmusic.controller;
+
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.dto.SongPage;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+// Paged song lists keep a plain JSON array body; the cursor for the next page travels in a header
+final class SongPageResponses {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private SongPageResponses() {
+    }
+
+    static ResponseEntity<List<SongDTO>> ok(SongPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        return response.body(page.getItems());
+    }
+}
@@ -0,0 +1,57 @@
+package com.emotionmusic.dto;
+
+import java.time.LocalDateTime;
+
+public class BulkDeleteStatus {
+    private boolean running;
+    private boolean resumed;
+    private long total;
+    private long deleted;
+    private long filesDeleted;
+    private long filesFailed;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // Constructors
+    public BulkDeleteStatus() {}
+
+    public BulkDeleteStatus(boolean running, boolean resumed, long total, long deleted, long filesDeleted,
+                            long filesFailed, LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.running = running;
+        this.resumed = resumed;
+        this.total = total;
+        this.deleted = deleted;
+        this.filesDeleted = filesDeleted;
+        this.filesFailed = filesFailed;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    // Getters and Setters
+    public boolean isRunning() { return running; }
+    public void setRunning(boolean running) { this.running = running; }
+
+    // Picked up at startup after the previous process stopped part way
+    public boolean isResumed() { return resumed; }
+    public void setResumed(boolean resumed) { this.resumed = resumed; }
+
+    // Songs left to delete when the job (or its resumption) started
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public long getDeleted() { return deleted; }
+    public void setDeleted(long deleted) { this.deleted = deleted; }
+
+    // Files no longer used by any song; shared files stay while a song still uses them
+    public long getFilesDeleted() { return filesDeleted; }
+    public void setFilesDeleted(long filesDeleted) { this.filesDeleted = filesDeleted; }
+
+    public long getFilesFailed() { return filesFailed; }
+    public void setFilesFailed(long filesFailed) { this.filesFailed = filesFailed; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
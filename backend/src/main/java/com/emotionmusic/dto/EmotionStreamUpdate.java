@@ -0,0 +1,41 @@
+package com.emotionmusic.dto;
+
+import com.emotionmusic.model.EmotionType;
+
+import java.util.List;
+
+// Pushed over /emotion/stream whenever a session's detected emotion changes
+public class EmotionStreamUpdate {
+    private EmotionType emotion;
+    private Double confidence;
+    private Long timestamp;
+    private String sessionId;
+    private List<SongDTO> playlist;
+
+    // Constructors
+    public EmotionStreamUpdate() {}
+
+    public EmotionStreamUpdate(EmotionDetectionResponse detection, List<SongDTO> playlist) {
+        this.emotion = detection.getEmotion();
+        this.confidence = detection.getConfidence();
+        this.timestamp = detection.getTimestamp();
+        this.sessionId = detection.getSessionId();
+        this.playlist = playlist;
+    }
+
+    // Getters and Setters
+    public EmotionType getEmotion() { return emotion; }
+    public void setEmotion(EmotionType emotion) { this.emotion = emotion; }
+
+    public Double getConfidence() { return confidence; }
+    public void setConfidence(Double confidence) { this.confidence = confidence; }
+
+    public Long getTimestamp() { return timestamp; }
+    public void setTimestamp(Long timestamp) { this.timestamp = timestamp; }
+
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public List<SongDTO> getPlaylist() { return playlist; }
+    public void setPlaylist(List<SongDTO> playlist) { this.playlist = playlist; }
+}
@@ -0,0 +1,28 @@
+package com.emotionmusic.dto;
+
+public class ImportFileResult {
+    private String name;
+    private String status;
+    private String message;
+
+    // Constructors
+    public ImportFileResult() {}
+
+    public ImportFileResult(String name, String status, String message) {
+        this.name = name;
+        this.status = status;
+        this.message = message;
+    }
+
+    // Getters and Setters
+    // Path relative to the imported directory or archive root
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    // "imported", "skipped" or "failed"
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -0,0 +1,58 @@
+package com.emotionmusic.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class ImportJobStatus {
+    private String id;
+    private String source;
+    private boolean running;
+    private long total;
+    private long imported;
+    private long skipped;
+    private long failed;
+    private double filesPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<ImportFileResult> results;
+
+    // Constructors
+    public ImportJobStatus() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    // The directory, or "zip" for an uploaded archive
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public boolean isRunning() { return running; }
+    public void setRunning(boolean running) { this.running = running; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public long getImported() { return imported; }
+    public void setImported(long imported) { this.imported = imported; }
+
+    // Not audio, or already imported by an earlier run of the same import
+    public long getSkipped() { return skipped; }
+    public void setSkipped(long skipped) { this.skipped = skipped; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    // Files handled (imported, skipped or failed) per second of wall time so far
+    public double getFilesPerSecond() { return filesPerSecond; }
+    public void setFilesPerSecond(double filesPerSecond) { this.filesPerSecond = filesPerSecond; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public List<ImportFileResult> getResults() { return results; }
+    public void setResults(List<ImportFileResult> results) { this.results = results; }
+}
@@ -0,0 +1,46 @@
+package com.emotionmusic.dto;
+
+import java.time.LocalDateTime;
+
+public class MetadataBackfillStatus {
+    private boolean running;
+    private long total;
+    private long processed;
+    private long failed;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // Constructors
+    public MetadataBackfillStatus() {}
+
+    public MetadataBackfillStatus(boolean running, long total, long processed, long failed,
+                                  LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.running = running;
+        this.total = total;
+        this.processed = processed;
+        this.failed = failed;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    // Getters and Setters
+    public boolean isRunning() { return running; }
+    public void setRunning(boolean running) { this.running = running; }
+
+    // Songs without a duration when the job started
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    // Includes failed songs, which keep their empty metadata
+    public long getProcessed() { return processed; }
+    public void setProcessed(long processed) { this.processed = processed; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
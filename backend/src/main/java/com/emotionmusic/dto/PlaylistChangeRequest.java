@@ -0,0 +1,23 @@
+package com.emotionmusic.dto;
+
+import java.util.List;
+
+public class PlaylistChangeRequest {
+    private List<Long> add;
+    private List<Long> remove;
+
+    // Constructors
+    public PlaylistChangeRequest() {}
+
+    public PlaylistChangeRequest(List<Long> add, List<Long> remove) {
+        this.add = add;
+        this.remove = remove;
+    }
+
+    // Getters and Setters
+    public List<Long> getAdd() { return add; }
+    public void setAdd(List<Long> add) { this.add = add; }
+
+    public List<Long> getRemove() { return remove; }
+    public void setRemove(List<Long> remove) { this.remove = remove; }
+}
@@ -0,0 +1,30 @@
+package com.emotionmusic.dto;
+
+import java.util.List;
+
+public class PlaylistChangeResult {
+    private int added;
+    private int removed;
+    private List<Long> unknownSongIds;
+
+    // Constructors
+    public PlaylistChangeResult() {}
+
+    public PlaylistChangeResult(int added, int removed, List<Long> unknownSongIds) {
+        this.added = added;
+        this.removed = removed;
+        this.unknownSongIds = unknownSongIds;
+    }
+
+    // Getters and Setters
+    // Songs that weren't in the playlist before; adding a member again changes nothing
+    public int getAdded() { return added; }
+    public void setAdded(int added) { this.added = added; }
+
+    public int getRemoved() { return removed; }
+    public void setRemoved(int removed) { this.removed = removed; }
+
+    // Ids in "add" with no song; the other changes are still applied
+    public List<Long> getUnknownSongIds() { return unknownSongIds; }
+    public void setUnknownSongIds(List<Long> unknownSongIds) { this.unknownSongIds = unknownSongIds; }
+}
@@ -0,0 +1,40 @@
+package com.emotionmusic.dto;
+
+import com.emotionmusic.model.EmotionType;
+
+import java.util.List;
+import java.util.Map;
+
+// Next-up songs for a session, best matching emotion first
+public class Recommendation {
+    private String sessionId;
+    private EmotionType emotion;
+    private Map<EmotionType, Double> nextEmotions;
+    private List<SongDTO> songs;
+
+    // Constructors
+    public Recommendation() {}
+
+    public Recommendation(String sessionId, EmotionType emotion, Map<EmotionType, Double> nextEmotions,
+                          List<SongDTO> songs) {
+        this.sessionId = sessionId;
+        this.emotion = emotion;
+        this.nextEmotions = nextEmotions;
+        this.songs = songs;
+    }
+
+    // Getters and Setters
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    // The session's current emotion the list was built from
+    public EmotionType getEmotion() { return emotion; }
+    public void setEmotion(EmotionType emotion) { this.emotion = emotion; }
+
+    // Predicted probability of each emotion being detected next
+    public Map<EmotionType, Double> getNextEmotions() { return nextEmotions; }
+    public void setNextEmotions(Map<EmotionType, Double> nextEmotions) { this.nextEmotions = nextEmotions; }
+
+    public List<SongDTO> getSongs() { return songs; }
+    public void setSongs(List<SongDTO> songs) { this.songs = songs; }
+}
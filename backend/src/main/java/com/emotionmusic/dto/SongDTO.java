@@ -4,6 +4,8 @@ import com.emotionmusic.model.EmotionType;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
+import java.time.LocalDateTime;
+
 public class SongDTO {
     private Long id;
     
@@ -19,7 +21,11 @@ public class SongDTO {
     private String filePath;
     private Long fileSize;
     private Double duration;
+    private Integer bitrate;
+    private Integer sampleRate;
+    private Integer channels;
     private String mimeType;
+    private LocalDateTime createdAt;
 
     // Constructors
     public SongDTO() {}
@@ -30,6 +36,24 @@ public class SongDTO {
         this.emotionCategory = emotionCategory;
     }
 
+    // Used by JPQL constructor expressions so catalog queries skip the persistence context
+    public SongDTO(Long id, String title, String artist, EmotionType emotionCategory, String filePath,
+                   Long fileSize, Double duration, Integer bitrate, Integer sampleRate, Integer channels,
+                   String mimeType, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.artist = artist;
+        this.emotionCategory = emotionCategory;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.duration = duration;
+        this.bitrate = bitrate;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.mimeType = mimeType;
+        this.createdAt = createdAt;
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -52,6 +76,18 @@ public class SongDTO {
     public Double getDuration() { return duration; }
     public void setDuration(Double duration) { this.duration = duration; }
 
+    public Integer getBitrate() { return bitrate; }
+    public void setBitrate(Integer bitrate) { this.bitrate = bitrate; }
+
+    public Integer getSampleRate() { return sampleRate; }
+    public void setSampleRate(Integer sampleRate) { this.sampleRate = sampleRate; }
+
+    public Integer getChannels() { return channels; }
+    public void setChannels(Integer channels) { this.channels = channels; }
+
     public String getMimeType() { return mimeType; }
     public void setMimeType(String mimeType) { this.mimeType = mimeType; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.emotionmusic.dto;
+
+import java.util.List;
+
+public class SongPage {
+    private List<SongDTO> items;
+    private String next;
+
+    // Constructors
+    public SongPage() {}
+
+    public SongPage(List<SongDTO> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    // Getters and Setters
+    public List<SongDTO> getItems() { return items; }
+    public void setItems(List<SongDTO> items) { this.items = items; }
+
+    // Opaque cursor for the following page, null on the last page
+    public String getNext() { return next; }
+    public void setNext(String next) { this.next = next; }
+}
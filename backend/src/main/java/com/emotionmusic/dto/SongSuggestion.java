@@ -0,0 +1,28 @@
+package com.emotionmusic.dto;
+
+public class SongSuggestion {
+    private String text;
+    private String type;
+    private Long songId;
+
+    // Constructors
+    public SongSuggestion() {}
+
+    public SongSuggestion(String text, String type, Long songId) {
+        this.text = text;
+        this.type = type;
+        this.songId = songId;
+    }
+
+    // Getters and Setters
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    // "title" or "artist"
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    // Set for title suggestions only; an artist suggestion stands for all of their songs
+    public Long getSongId() { return songId; }
+    public void setSongId(Long songId) { this.songId = songId; }
+}
@@ -15,14 +15,15 @@ public class Playlist {
 
     @NotNull(message = "Emotion is required")
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @Column(nullable = false, unique = true)
     private EmotionType emotion;
 
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "playlist_songs",
         joinColumns = @JoinColumn(name = "playlist_id"),
-        inverseJoinColumns = @JoinColumn(name = "song_id")
+        inverseJoinColumns = @JoinColumn(name = "song_id"),
+        uniqueConstraints = @UniqueConstraint(columnNames = {"playlist_id", "song_id"})
     )
     private List<Song> songs = new ArrayList<>();
 
@@ -5,9 +5,16 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "songs")
+@Table(name = "songs", indexes = {
+    // Keyset pagination walks (created_at, id) newest first
+    @Index(name = "idx_songs_created_id", columnList = "created_at, id"),
+    @Index(name = "idx_songs_emotion_created_id", columnList = "emotion_category, created_at, id"),
+    // Counts the songs sharing a stored file
+    @Index(name = "idx_songs_content_hash", columnList = "content_hash")
+})
 public class Song {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -38,9 +45,23 @@ public class Song {
     @Column(name = "duration")
     private Double duration;
 
+    // Average kbit/s, filled in by the metadata extractor like duration, sample rate and channels
+    @Column(name = "bitrate")
+    private Integer bitrate;
+
+    @Column(name = "sample_rate")
+    private Integer sampleRate;
+
+    @Column(name = "channels")
+    private Integer channels;
+
     @Column(name = "mime_type")
     private String mimeType;
 
+    // SHA-256 of the file, null for files stored before content addressing
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
@@ -49,7 +70,8 @@ public class Song {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Same precision as the datetime(6) column, so cursors built in memory match the database
+        createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
         updatedAt = LocalDateTime.now();
     }
 
@@ -90,9 +112,21 @@ public class Song {
     public Double getDuration() { return duration; }
     public void setDuration(Double duration) { this.duration = duration; }
 
+    public Integer getBitrate() { return bitrate; }
+    public void setBitrate(Integer bitrate) { this.bitrate = bitrate; }
+
+    public Integer getSampleRate() { return sampleRate; }
+    public void setSampleRate(Integer sampleRate) { this.sampleRate = sampleRate; }
+
+    public Integer getChannels() { return channels; }
+    public void setChannels(Integer channels) { this.channels = channels; }
+
     public String getMimeType() { return mimeType; }
     public void setMimeType(String mimeType) { this.mimeType = mimeType; }
 
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
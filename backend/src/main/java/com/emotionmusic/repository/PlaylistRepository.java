@@ -1,10 +1,19 @@
 package com.emotionmusic.repository;
 
+import com.emotionmusic.dto.SongDTO;
 import com.emotionmusic.model.EmotionType;
 import com.emotionmusic.model.Playlist;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +22,32 @@ public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     Optional<Playlist> findByEmotion(EmotionType emotion);
     
     boolean existsByEmotion(EmotionType emotion);
+
+    @Query("SELECT p.id FROM Playlist p WHERE p.emotion = :emotion")
+    Optional<Long> findIdByEmotion(@Param("emotion") EmotionType emotion);
+
+    // Which of these songs are already in the playlist
+    @Query("SELECT s.id FROM Playlist p JOIN p.songs s WHERE p.id = :playlistId AND s.id IN :songIds")
+    List<Long> findMemberIds(@Param("playlistId") Long playlistId, @Param("songIds") Collection<Long> songIds);
+
+    // Takes the song out of every playlist, ahead of deleting it
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM playlist_songs WHERE song_id = :songId", nativeQuery = true)
+    int deleteMemberships(@Param("songId") Long songId);
+
+    // playlists, playlist_songs and songs in one query, straight into DTOs: no Song entities are loaded
+    String PLAYLIST_SONG_DTO = "SELECT new com.emotionmusic.dto.SongDTO(s.id, s.title, s.artist, s.emotionCategory, "
+            + "s.filePath, s.fileSize, s.duration, s.bitrate, s.sampleRate, s.channels, s.mimeType, s.createdAt) "
+            + "FROM Playlist p JOIN p.songs s WHERE p.emotion = :emotion ";
+    String NEWEST_FIRST = " ORDER BY s.createdAt DESC, s.id DESC";
+
+    @Query(PLAYLIST_SONG_DTO + NEWEST_FIRST)
+    List<SongDTO> findSongs(@Param("emotion") EmotionType emotion);
+
+    @Query(PLAYLIST_SONG_DTO + "AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id))"
+            + NEWEST_FIRST)
+    List<SongDTO> findSongPageBefore(@Param("emotion") EmotionType emotion,
+                                     @Param("createdAt") LocalDateTime createdAt, @Param("id") long id,
+                                     Pageable pageable);
 }
\ No newline at end of file
@@ -1,29 +1,92 @@
 package com.emotionmusic.repository;
 
+import com.emotionmusic.dto.SongDTO;
 import com.emotionmusic.model.EmotionType;
 import com.emotionmusic.model.Song;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SongRepository extends JpaRepository<Song, Long> {
     
     List<Song> findByEmotionCategory(EmotionType emotionCategory);
     
-    List<Song> findByTitleContainingIgnoreCase(String title);
+    @Query("SELECT s.id FROM Song s WHERE s.emotionCategory = :emotion")
+    List<Long> findIdsByEmotionCategory(@Param("emotion") EmotionType emotion);
     
-    List<Song> findByArtistContainingIgnoreCase(String artist);
-    
-    @Query("SELECT s FROM Song s WHERE s.emotionCategory = :emotion ORDER BY FUNCTION('RAND')")
-    List<Song> findRandomSongsByEmotion(@Param("emotion") EmotionType emotion);
-    
-    @Query("SELECT s FROM Song s ORDER BY s.createdAt DESC")
-    List<Song> findAllOrderByCreatedAtDesc();
+    String SONG_DTO = "SELECT new com.emotionmusic.dto.SongDTO(s.id, s.title, s.artist, s.emotionCategory, "
+            + "s.filePath, s.fileSize, s.duration, s.bitrate, s.sampleRate, s.channels, s.mimeType, s.createdAt) "
+            + "FROM Song s ";
+    String BEFORE_CURSOR = "(s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id))";
+    String NEWEST_FIRST = " ORDER BY s.createdAt DESC, s.id DESC";
+
+    @Query(SONG_DTO + NEWEST_FIRST)
+    List<SongDTO> findAllNewestFirst();
+
+    @Query(SONG_DTO + "WHERE s.id = :id")
+    Optional<SongDTO> findDtoById(@Param("id") Long id);
+
+    // Songs with one of these files created since a time, i.e. what an import batch just inserted
+    @Query(SONG_DTO + "WHERE s.createdAt >= :since AND s.contentHash IN :hashes")
+    List<SongDTO> findCreatedSince(@Param("since") LocalDateTime since,
+                                   @Param("hashes") Collection<String> hashes);
+
+    @Query(SONG_DTO + "WHERE " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<SongDTO> findPageBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") long id,
+                                 Pageable pageable);
+
+    @Query(SONG_DTO + "WHERE s.emotionCategory = :emotion AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<SongDTO> findPageByEmotionBefore(@Param("emotion") EmotionType emotion,
+                                          @Param("createdAt") LocalDateTime createdAt, @Param("id") long id,
+                                          Pageable pageable);
+
+    @Query(SONG_DTO + "WHERE (LOWER(s.title) LIKE LOWER(CONCAT('%', :query, '%')) "
+            + "OR LOWER(s.artist) LIKE LOWER(CONCAT('%', :query, '%'))) AND " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<SongDTO> searchPageBefore(@Param("query") String query,
+                                   @Param("createdAt") LocalDateTime createdAt, @Param("id") long id,
+                                   Pageable pageable);
     
     @Query("SELECT COUNT(s) FROM Song s WHERE s.emotionCategory = :emotion")
     Long countByEmotionCategory(@Param("emotion") EmotionType emotion);
-}
\ No newline at end of file
+
+    long countByContentHash(String contentHash);
+
+    boolean existsByFilePath(String filePath);
+
+    @Query("SELECT s.id FROM Song s WHERE s.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // "hash|title|artist" of the songs with one of these files, to skip what an import already added
+    @Query("SELECT CONCAT(s.contentHash, '|', s.title, '|', s.artist) FROM Song s WHERE s.contentHash IN :hashes")
+    List<String> findImportKeys(@Param("hashes") Collection<String> hashes);
+
+    @Query("SELECT s.id FROM Song s WHERE s.duration IS NULL AND s.id > :afterId ORDER BY s.id")
+    List<Long> findIdsWithoutDurationAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT COUNT(s) FROM Song s WHERE s.duration IS NULL")
+    long countWithoutDuration();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Song s SET s.duration = :duration, s.bitrate = :bitrate, s.sampleRate = :sampleRate, "
+            + "s.channels = :channels WHERE s.id = :id")
+    int updateAudioMetadata(@Param("id") Long id, @Param("duration") Double duration,
+                            @Param("bitrate") Integer bitrate, @Param("sampleRate") Integer sampleRate,
+                            @Param("channels") Integer channels);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Song s SET s.emotionCategory = :emotion, s.updatedAt = :updatedAt WHERE s.id = :id")
+    int updateEmotionCategory(@Param("id") Long id, @Param("emotion") EmotionType emotion,
+                              @Param("updatedAt") LocalDateTime updatedAt);
+}
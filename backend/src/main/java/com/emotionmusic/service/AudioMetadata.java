@@ -0,0 +1,243 @@
+package com.emotionmusic.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Duration, bitrate, sample rate and channel count read from file headers, without decoding
+ * any audio. WAV files are walked chunk by chunk. For MP3 the first frame header is used,
+ * together with its Xing/Info or VBRI header when the file has one (VBR); otherwise the
+ * file is taken to be CBR and the duration follows from the audio size. Only the first
+ * 64 KB after any ID3v2 tag and the last 128 bytes are read.
+ */
+public final class AudioMetadata {
+
+    private static final int SCAN_BYTES = 64 * 1024;
+    private static final int MAX_WAV_CHUNKS = 64;
+
+    private static final int[][] BITRATES_KBPS = {
+            // MPEG-1 layer I, II, III
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG-2 and 2.5 layer I, then II and III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+    };
+    private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+
+    private final double duration;
+    private final int bitrate;
+    private final int sampleRate;
+    private final int channels;
+
+    private AudioMetadata(double duration, int bitrate, int sampleRate, int channels) {
+        this.duration = duration;
+        this.bitrate = bitrate;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    // Seconds
+    public double getDuration() { return duration; }
+
+    // Average kbit/s
+    public int getBitrate() { return bitrate; }
+
+    public int getSampleRate() { return sampleRate; }
+
+    public int getChannels() { return channels; }
+
+    /**
+     * @return {@code null} if the file is neither a WAV nor an MP3 this parser understands
+     */
+    public static AudioMetadata read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = readAt(channel, 0, 12);
+            if (head.remaining() == 12 && ascii(head, 0).equals("RIFF") && ascii(head, 8).equals("WAVE")) {
+                return readWav(channel);
+            }
+            return readMp3(channel);
+        }
+    }
+
+    private static AudioMetadata readWav(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long pos = 12;
+        int channels = 0;
+        int sampleRate = 0;
+        long byteRate = 0;
+        long dataSize = -1;
+        for (int chunk = 0; chunk < MAX_WAV_CHUNKS && pos + 8 <= size; chunk++) {
+            ByteBuffer header = readAt(channel, pos, 8).order(ByteOrder.LITTLE_ENDIAN);
+            String id = ascii(header, 0);
+            long chunkSize = Integer.toUnsignedLong(header.getInt(4));
+            if (id.equals("fmt ")) {
+                ByteBuffer fmt = readAt(channel, pos + 8, 16).order(ByteOrder.LITTLE_ENDIAN);
+                if (fmt.remaining() < 16) {
+                    return null;
+                }
+                channels = Short.toUnsignedInt(fmt.getShort(2));
+                sampleRate = fmt.getInt(4);
+                byteRate = Integer.toUnsignedLong(fmt.getInt(8));
+            } else if (id.equals("data")) {
+                // Streamed WAVs may leave the size at 0 or 0xFFFFFFFF; the rest of the file is the data then
+                long available = size - pos - 8;
+                dataSize = chunkSize == 0 || chunkSize > available ? available : chunkSize;
+                if (byteRate > 0) {
+                    break;
+                }
+            }
+            pos += 8 + chunkSize + (chunkSize & 1);
+        }
+        if (byteRate <= 0 || dataSize < 0 || sampleRate <= 0) {
+            return null;
+        }
+        return new AudioMetadata((double) dataSize / byteRate, (int) (byteRate * 8 / 1000), sampleRate, channels);
+    }
+
+    private static AudioMetadata readMp3(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long audioStart = 0;
+        ByteBuffer id3 = readAt(channel, 0, 10);
+        if (id3.remaining() == 10 && ascii(id3, 0).startsWith("ID3")) {
+            int tagSize = (id3.get(6) & 0x7f) << 21 | (id3.get(7) & 0x7f) << 14
+                    | (id3.get(8) & 0x7f) << 7 | (id3.get(9) & 0x7f);
+            boolean footer = (id3.get(5) & 0x10) != 0;
+            audioStart = 10 + tagSize + (footer ? 10 : 0);
+        }
+        long audioEnd = size;
+        if (size - audioStart >= 128 && ascii(readAt(channel, size - 128, 4), 0).startsWith("TAG")) {
+            audioEnd -= 128;
+        }
+
+        ByteBuffer window = readAt(channel, audioStart, SCAN_BYTES);
+        int limit = window.limit();
+        for (int i = 0; i + 4 <= limit; i++) {
+            if ((window.get(i) & 0xff) != 0xff || (window.get(i + 1) & 0xe0) != 0xe0) {
+                continue;
+            }
+            FrameHeader frame = FrameHeader.parse(window.getInt(i));
+            if (frame == null) {
+                continue;
+            }
+            // A false sync inside other data rarely has a matching frame right after it
+            int next = i + frame.length;
+            if (next + 4 <= limit) {
+                FrameHeader following = FrameHeader.parse(window.getInt(next));
+                if (following == null || following.sampleRate != frame.sampleRate || following.layer != frame.layer) {
+                    continue;
+                }
+            }
+            return fromFrame(window, i, frame, audioEnd - audioStart - i);
+        }
+        return null;
+    }
+
+    private static AudioMetadata fromFrame(ByteBuffer window, int at, FrameHeader frame, long audioBytes) {
+        long frames = 0;
+        long bytes = 0;
+        int xing = at + 4 + frame.sideInfoSize();
+        int vbri = at + 4 + 32;
+        if (xing + 16 <= window.limit()
+                && (ascii(window, xing).equals("Xing") || ascii(window, xing).equals("Info"))) {
+            int flags = window.getInt(xing + 4);
+            int field = xing + 8;
+            if ((flags & 1) != 0) {
+                frames = Integer.toUnsignedLong(window.getInt(field));
+                field += 4;
+            }
+            if ((flags & 2) != 0 && field + 4 <= window.limit()) {
+                bytes = Integer.toUnsignedLong(window.getInt(field));
+            }
+        } else if (vbri + 18 <= window.limit() && ascii(window, vbri).equals("VBRI")) {
+            bytes = Integer.toUnsignedLong(window.getInt(vbri + 10));
+            frames = Integer.toUnsignedLong(window.getInt(vbri + 14));
+        }
+
+        if (frames > 0) {
+            double duration = (double) frames * frame.samplesPerFrame / frame.sampleRate;
+            long totalBytes = bytes > 0 ? bytes : audioBytes;
+            return new AudioMetadata(duration, (int) Math.round(totalBytes * 8 / duration / 1000),
+                    frame.sampleRate, frame.channels);
+        }
+        double duration = audioBytes * 8.0 / (frame.bitrateKbps * 1000);
+        return new AudioMetadata(duration, frame.bitrateKbps, frame.sampleRate, frame.channels);
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // keep reading until full or end of file
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String ascii(ByteBuffer buffer, int at) {
+        int length = Math.min(4, buffer.limit() - at);
+        if (length <= 0) {
+            return "";
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(at, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static final class FrameHeader {
+        private final boolean mpeg1;
+        private final int layer;
+        private final int bitrateKbps;
+        private final int sampleRate;
+        private final int channels;
+        private final int samplesPerFrame;
+        private final int length;
+
+        private FrameHeader(boolean mpeg1, int layer, int bitrateKbps, int sampleRate, int channels, int padding) {
+            this.mpeg1 = mpeg1;
+            this.layer = layer;
+            this.bitrateKbps = bitrateKbps;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.samplesPerFrame = layer == 1 ? 384 : (layer == 3 && !mpeg1 ? 576 : 1152);
+            this.length = layer == 1
+                    ? (12 * bitrateKbps * 1000 / sampleRate + padding) * 4
+                    : samplesPerFrame / 8 * bitrateKbps * 1000 / sampleRate + padding;
+        }
+
+        // null for reserved or free-format values, which also weeds out most false syncs
+        private static FrameHeader parse(int header) {
+            if ((header & 0xffe00000) != 0xffe00000) {
+                return null;
+            }
+            int version = (header >>> 19) & 3;
+            int layerBits = (header >>> 17) & 3;
+            int bitrateIndex = (header >>> 12) & 0xf;
+            int sampleRateIndex = (header >>> 10) & 3;
+            if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+                return null;
+            }
+            boolean mpeg1 = version == 3;
+            int layer = 4 - layerBits;
+            int table = mpeg1 ? layer - 1 : (layer == 1 ? 3 : 4);
+            // MPEG-2 halves the MPEG-1 sample rates, MPEG-2.5 quarters them
+            int sampleRate = MPEG1_SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : (version == 2 ? 1 : 2));
+            int channels = ((header >>> 6) & 3) == 3 ? 1 : 2;
+            return new FrameHeader(mpeg1, layer, BITRATES_KBPS[table][bitrateIndex], sampleRate, channels,
+                    (header >>> 9) & 1);
+        }
+
+        // Side information sits between the frame header and a Xing/Info header
+        private int sideInfoSize() {
+            if (mpeg1) {
+                return channels == 1 ? 17 : 32;
+            }
+            return channels == 1 ? 9 : 17;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.emotionmusic.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects concurrent detection calls for up to {@code window-ms} or {@code max-size}
+ * frames and sends them to DeepFace as a single batched analyze request.
+ */
+@Component
+public class DeepFaceBatcher {
+
+    @Autowired
+    private DeepFaceClient deepFaceClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.deepface.batch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.deepface.batch.window-ms:20}")
+    private long windowMs;
+
+    @Value("${app.deepface.batch.max-size:16}")
+    private int maxBatchSize;
+
+    @Value("${app.deepface.batch.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${app.deepface.batch.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    private BlockingQueue<PendingFrame> queue;
+    private ThreadPoolExecutor dispatcher;
+    private Thread collector;
+    private volatile boolean running;
+
+    private DistributionSummary batchSizes;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        // When every dispatch thread is busy the collector sends the batch itself,
+        // which pauses collection and lets the queue absorb the burst
+        dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "deepface-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        batchSizes = DistributionSummary.builder("app.deepface.batch.size")
+                .description("Frames per batched DeepFace request").register(meterRegistry);
+        rejectedCounter = Counter.builder("app.deepface.batch.rejected")
+                .description("Frames rejected because the batch queue was full").register(meterRegistry);
+        Gauge.builder("app.deepface.batch.queued", queue, BlockingQueue::size).register(meterRegistry);
+
+        running = true;
+        collector = new Thread(this::collectLoop, "deepface-batch-collector");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        collector.interrupt();
+        dispatcher.shutdown();
+        List<PendingFrame> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(frame -> frame.result.completeExceptionally(
+                new IOException("DeepFace batcher is shutting down")));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, Object> analyze(ImageFrame image) throws IOException {
+        PendingFrame frame = new PendingFrame(image);
+        if (!queue.offer(frame)) {
+            rejectedCounter.increment();
+            throw new DeepFaceRejectedException("DeepFace batch queue full (" + queueCapacity + " frames)");
+        }
+
+        try {
+            return frame.result.get(windowMs + deepFaceClient.getBatchTimeoutMs(maxBatchSize), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("DeepFace batch failed", cause);
+        } catch (TimeoutException e) {
+            // Marks the frame done so a batch that has not been sent yet skips it; one already
+            // being written may still read the buffer, so it must not go back to the pool
+            frame.result.cancel(false);
+            image.markNotRecyclable();
+            throw new InterruptedIOException("Timed out waiting for batched DeepFace result");
+        } catch (InterruptedException e) {
+            frame.result.cancel(false);
+            image.markNotRecyclable();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for batched DeepFace result");
+        }
+    }
+
+    private void collectLoop() {
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        List<PendingFrame> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Take whatever is already queued before waiting on the window
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingFrame next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                List<PendingFrame> toSend = List.copyOf(batch);
+                batch.clear();
+                dispatcher.execute(() -> send(toSend));
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                // Executor already shut down, fail whatever was collected
+                batch.forEach(frame -> frame.result.completeExceptionally(e));
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<PendingFrame> batch) {
+        List<PendingFrame> live = new ArrayList<>(batch.size());
+        List<ImageFrame> images = new ArrayList<>(batch.size());
+        for (PendingFrame frame : batch) {
+            if (frame.result.isDone()) {
+                continue;
+            }
+            images.add(frame.image);
+            live.add(frame);
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+        batchSizes.record(live.size());
+
+        try {
+            Map<String, Object> response = deepFaceClient.analyzeBatch(images);
+            Object results = response.get("results");
+            for (int i = 0; i < live.size(); i++) {
+                Object result = results instanceof Map<?, ?> map ? map.get(String.valueOf(i)) : null;
+                if (result instanceof Map<?, ?> resultMap && !resultMap.containsKey("error")) {
+                    live.get(i).result.complete(asResult(resultMap));
+                } else {
+                    live.get(i).result.completeExceptionally(
+                            new IOException("DeepFace returned no result for batched frame"));
+                }
+            }
+        } catch (Exception e) {
+            live.forEach(frame -> frame.result.completeExceptionally(e));
+        }
+    }
+
+    // The service's JSON objects have string keys
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asResult(Map<?, ?> result) {
+        return (Map<String, Object>) result;
+    }
+
+    private static final class PendingFrame {
+        private final ImageFrame image;
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+
+        private PendingFrame(ImageFrame image) {
+            this.image = image;
+        }
+    }
+}
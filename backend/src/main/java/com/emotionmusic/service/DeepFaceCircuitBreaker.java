@@ -0,0 +1,218 @@
+package com.emotionmusic.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count-based circuit breaker around the DeepFace call. The last {@code window-size} calls
+ * are kept; when either their failure rate or slow-call rate crosses its threshold the
+ * circuit opens and callers are refused straight away. After {@code open-duration-ms} a few
+ * probe calls are let through (half-open) and decide whether to close or re-open.
+ */
+@Component("deepFaceCircuit")
+public class DeepFaceCircuitBreaker implements HealthIndicator {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.deepface.circuit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.deepface.circuit.window-size:20}")
+    private int windowSize;
+
+    @Value("${app.deepface.circuit.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${app.deepface.circuit.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${app.deepface.circuit.slow-call-threshold-ms:3000}")
+    private long slowCallThresholdMs;
+
+    @Value("${app.deepface.circuit.slow-call-rate-threshold:80}")
+    private int slowCallRateThreshold;
+
+    @Value("${app.deepface.circuit.open-duration-ms:10000}")
+    private long openDurationMs;
+
+    @Value("${app.deepface.circuit.half-open-probes:3}")
+    private int halfOpenProbes;
+
+    // Outcome ring: bit 0 = failed, bit 1 = slow
+    private byte[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private volatile State state = State.CLOSED;
+    private long openUntil;
+    private int probesStarted;
+    private int probesFinished;
+    private int probeFailures;
+    private int probeSlowCalls;
+    private volatile long lastTransitionAt = System.currentTimeMillis();
+
+    private final Map<State, Counter> transitionCounters = new EnumMap<>(State.class);
+    private Counter refusedCounter;
+
+    @PostConstruct
+    void init() {
+        outcomes = new byte[windowSize];
+        Gauge.builder("app.deepface.circuit.state", this, breaker -> breaker.state.ordinal())
+                .description("DeepFace circuit state: 0 closed, 1 half-open, 2 open").register(meterRegistry);
+        for (State target : State.values()) {
+            transitionCounters.put(target, Counter.builder("app.deepface.circuit.transitions")
+                    .description("DeepFace circuit state transitions")
+                    .tag("to", target.name().toLowerCase()).register(meterRegistry));
+        }
+        refusedCounter = Counter.builder("app.deepface.circuit.refused")
+                .description("DeepFace calls short-circuited while the circuit was open").register(meterRegistry);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns whether a DeepFace call may be attempted now. Every {@code true} must be
+     * followed by exactly one of {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    public boolean tryAcquire() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN && probesStarted < halfOpenProbes) {
+                probesStarted++;
+                return true;
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+        }
+        refusedCounter.increment();
+        return false;
+    }
+
+    public void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    public void onFailure(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    // The call never reached DeepFace (e.g. our own bulkhead refused it)
+    public synchronized void onIgnored() {
+        if (enabled && state == State.HALF_OPEN && probesStarted > probesFinished) {
+            probesStarted--;
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up();
+        synchronized (this) {
+            builder.withDetail("state", state)
+                    .withDetail("bufferedCalls", recorded)
+                    .withDetail("failureRate", rate(failures, recorded))
+                    .withDetail("slowCallRate", rate(slowCalls, recorded))
+                    .withDetail("lastTransition", Instant.ofEpochMilli(lastTransitionAt).toString());
+        }
+        return builder.build();
+    }
+
+    private synchronized void record(boolean failed, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        boolean slow = durationNanos >= TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMs);
+
+        if (state == State.HALF_OPEN) {
+            probesFinished++;
+            if (failed) {
+                probeFailures++;
+            }
+            if (slow) {
+                probeSlowCalls++;
+            }
+            if (probesFinished >= halfOpenProbes) {
+                boolean healthy = rate(probeFailures, probesFinished) < failureRateThreshold
+                        && rate(probeSlowCalls, probesFinished) < slowCallRateThreshold;
+                transitionTo(healthy ? State.CLOSED : State.OPEN);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A call that started before the circuit opened
+            return;
+        }
+
+        if (recorded == outcomes.length) {
+            byte evicted = outcomes[next];
+            failures -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        next = (next + 1) % outcomes.length;
+        if (failed) {
+            failures++;
+        }
+        if (slow) {
+            slowCalls++;
+        }
+
+        if (recorded >= minimumCalls
+                && (rate(failures, recorded) >= failureRateThreshold
+                    || rate(slowCalls, recorded) >= slowCallRateThreshold)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State target) {
+        System.out.println("DeepFace circuit " + state + " -> " + target
+                + " (failure rate " + rate(failures, recorded) + "%, slow " + rate(slowCalls, recorded) + "%)");
+        state = target;
+        lastTransitionAt = System.currentTimeMillis();
+        transitionCounters.get(target).increment();
+
+        probesStarted = 0;
+        probesFinished = 0;
+        probeFailures = 0;
+        probeSlowCalls = 0;
+        if (target == State.OPEN) {
+            openUntil = lastTransitionAt + openDurationMs;
+        } else if (target == State.CLOSED) {
+            // Start the window afresh so the outage's failures do not re-open it at once
+            recorded = 0;
+            next = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+    }
+
+    private static float rate(int count, int total) {
+        return total == 0 ? 0f : count * 100f / total;
+    }
+}
@@ -0,0 +1,264 @@
+package com.emotionmusic.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.entity.mime.AbstractContentBody;
+import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class DeepFaceClient {
+
+    private static final TypeReference<Map<String, Object>> RESPONSE_TYPE = new TypeReference<>() {};
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.deepface.api-url}")
+    private String deepfaceApiUrl;
+
+    @Value("${app.deepface.batch-url:http://localhost:5000/analyze_batch}")
+    private String deepfaceBatchUrl;
+
+    @Value("${app.deepface.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.deepface.read-timeout-ms:4000}")
+    private long readTimeoutMs;
+
+    @Value("${app.deepface.total-timeout-ms:6000}")
+    private long totalTimeoutMs;
+
+    // Extra read and total time a batch gets for each frame after the first
+    @Value("${app.deepface.batch.per-frame-timeout-ms:250}")
+    private long perFrameTimeoutMs;
+
+    @Value("${app.deepface.pool.max-connections:32}")
+    private int maxConnections;
+
+    @Value("${app.deepface.pool.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    @Value("${app.deepface.bulkhead.max-concurrent:16}")
+    private int maxConcurrent;
+
+    @Value("${app.deepface.bulkhead.max-wait-ms:0}")
+    private long maxWaitMs;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RequestConfig defaultRequestConfig;
+    private CloseableHttpClient httpClient;
+    private Semaphore bulkhead;
+    private ScheduledExecutorService deadlineScheduler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    void init() {
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .build();
+
+        defaultRequestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(keepAliveMs))
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                .build();
+
+        bulkhead = new Semaphore(maxConcurrent);
+        deadlineScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deepface-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("app.deepface.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+                .description("DeepFace connections currently in use").register(meterRegistry);
+        Gauge.builder("app.deepface.pool.available", connectionManager, cm -> cm.getTotalStats().getAvailable())
+                .description("Idle keep-alive DeepFace connections").register(meterRegistry);
+        Gauge.builder("app.deepface.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                .description("Requests waiting for a DeepFace connection").register(meterRegistry);
+        Gauge.builder("app.deepface.pool.max", connectionManager, cm -> cm.getTotalStats().getMax())
+                .register(meterRegistry);
+        Gauge.builder("app.deepface.inflight", inFlight, AtomicInteger::get)
+                .description("DeepFace calls currently executing").register(meterRegistry);
+        Gauge.builder("app.deepface.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("app.deepface.bulkhead.rejected")
+                .description("DeepFace calls rejected because the bulkhead was full").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        deadlineScheduler.shutdownNow();
+        httpClient.close();
+    }
+
+    public Map<String, Object> analyze(Map<String, Object> requestBody) throws IOException {
+        return post(deepfaceApiUrl, new ByteArrayEntity(objectMapper.writeValueAsBytes(requestBody),
+                ContentType.APPLICATION_JSON));
+    }
+
+    public Map<String, Object> analyzeImage(ImageFrame frame) throws IOException {
+        return post(deepfaceApiUrl, new ByteArrayEntity(frame.getBytes(), 0, frame.getLength(),
+                ContentType.parse(frame.getContentType())));
+    }
+
+    // Batch contract: multipart/form-data with one raw image part per frame, named by its id,
+    // answered with {"results": {id: result | {"error": ...}}}
+    public Map<String, Object> analyzeBatch(List<ImageFrame> frames) throws IOException {
+        MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+        for (int i = 0; i < frames.size(); i++) {
+            builder.addPart(String.valueOf(i), new FrameBody(frames.get(i)));
+        }
+        return post(deepfaceBatchUrl, builder.build(), batchExtraMs(frames.size()));
+    }
+
+    public long getTotalTimeoutMs() {
+        return totalTimeoutMs;
+    }
+
+    // Deadline of a batch of this many frames; the single-frame timeouts plus per-frame time
+    public long getBatchTimeoutMs(int frames) {
+        return totalTimeoutMs + batchExtraMs(frames);
+    }
+
+    private long batchExtraMs(int frames) {
+        return perFrameTimeoutMs * Math.max(0, frames - 1);
+    }
+
+    private Map<String, Object> post(String url, HttpEntity entity) throws IOException {
+        return post(url, entity, 0);
+    }
+
+    private Map<String, Object> post(String url, HttpEntity entity, long extraMs) throws IOException {
+        acquirePermit();
+        inFlight.incrementAndGet();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+
+        HttpPost post = new HttpPost(url);
+        post.setEntity(entity);
+        if (extraMs > 0) {
+            post.setConfig(RequestConfig.copy(defaultRequestConfig)
+                    .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs + extraMs))
+                    .build());
+        }
+        long totalMs = totalTimeoutMs + extraMs;
+        // Socket timeouts only bound each read, so cancel the exchange once the overall deadline passes
+        ScheduledFuture<?> deadline = deadlineScheduler.schedule(post::cancel, totalMs, TimeUnit.MILLISECONDS);
+        try {
+            Map<String, Object> result = httpClient.execute(post, response -> {
+                if (response.getCode() != 200) {
+                    throw new IOException("DeepFace API returned HTTP " + response.getCode());
+                }
+                if (response.getEntity() == null) {
+                    throw new IOException("DeepFace API returned an empty body");
+                }
+                return objectMapper.readValue(response.getEntity().getContent(), RESPONSE_TYPE);
+            });
+            outcome = "success";
+            return result;
+        } catch (IOException e) {
+            if (post.isCancelled()) {
+                outcome = "timeout";
+                throw new InterruptedIOException("DeepFace API call exceeded " + totalMs + " ms");
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+            sample.stop(Timer.builder("app.deepface.requests")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            inFlight.decrementAndGet();
+            bulkhead.release();
+        }
+    }
+
+    private void acquirePermit() throws IOException {
+        boolean acquired;
+        try {
+            acquired = maxWaitMs > 0
+                    ? bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)
+                    : bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a DeepFace permit");
+        }
+        if (!acquired) {
+            rejectedCounter.increment();
+            throw new DeepFaceRejectedException("DeepFace bulkhead full (" + maxConcurrent + " calls in flight)");
+        }
+    }
+
+    // Streams the valid slice of a (possibly pooled) frame buffer without copying it
+    private static final class FrameBody extends AbstractContentBody {
+        private final ImageFrame frame;
+
+        private FrameBody(ImageFrame frame) {
+            super(ContentType.parse(frame.getContentType()));
+            this.frame = frame;
+        }
+
+        @Override
+        public String getFilename() {
+            return "frame";
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(frame.getBytes(), 0, frame.getLength());
+        }
+
+        @Override
+        public long getContentLength() {
+            return frame.getLength();
+        }
+    }
+}
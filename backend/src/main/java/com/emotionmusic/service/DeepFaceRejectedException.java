@@ -0,0 +1,10 @@
+package com.emotionmusic.service;
+
+public class DeepFaceRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeepFaceRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,255 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.EmotionDetectionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Latest-frame-wins admission in front of detection. Each session holds at most one waiting
+ * frame; a newer frame replaces it and the replaced request is answered at once with the
+ * session's latest result. Sessions are served from a priority queue that favours those
+ * whose last result is oldest (or that have none yet).
+ */
+@Component
+public class DetectionAdmission {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.emotion.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.emotion.admission.workers:16}")
+    private int workers;
+
+    @Value("${app.emotion.admission.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    @Value("${app.emotion.admission.idle-ms:60000}")
+    private long idleMs;
+
+    private final Map<String, SessionMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private PriorityBlockingQueue<Ticket> ready;
+    private List<Thread> workerThreads;
+    private volatile boolean running;
+
+    private Counter supersededCounter;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+
+        ready = new PriorityBlockingQueue<>(64,
+                Comparator.comparingLong(Ticket::lastResultAt).thenComparingLong(Ticket::sequence));
+        supersededCounter = Counter.builder("app.emotion.admission.superseded")
+                .description("Frames replaced by a newer frame from the same session").register(meterRegistry);
+        Gauge.builder("app.emotion.admission.queued", ready, PriorityBlockingQueue::size).register(meterRegistry);
+        Gauge.builder("app.emotion.admission.sessions", mailboxes, Map::size).register(meterRegistry);
+
+        running = true;
+        workerThreads = new ArrayList<>(workers);
+        for (int i = 1; i <= workers; i++) {
+            Thread thread = new Thread(this::workLoop, "detection-admission-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        workerThreads.forEach(Thread::interrupt);
+        mailboxes.values().forEach(mailbox -> {
+            Pending pending = mailbox.takePending();
+            if (pending != null) {
+                pending.result.completeExceptionally(new DeepFaceRejectedException("Detection is shutting down"));
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues {@code detection} as the session's latest frame and waits for its result.
+     *
+     * @throws FrameSupersededException if a newer frame replaced this one before it ran and
+     *                                  the session has no earlier result to answer with
+     */
+    public EmotionDetectionResponse submit(String sessionId, ImageFrame frame,
+                                           Supplier<EmotionDetectionResponse> detection) {
+        Pending pending = new Pending(detection);
+        Pending[] replaced = new Pending[1];
+        Ticket[] ticket = new Ticket[1];
+        // compute() keeps this atomic with purgeIdle() removing the same mailbox
+        SessionMailbox mailbox = mailboxes.compute(sessionId, (id, existing) -> {
+            SessionMailbox target = existing != null ? existing : new SessionMailbox(id);
+            synchronized (target) {
+                replaced[0] = target.pending;
+                target.pending = pending;
+                target.touchedAt = System.currentTimeMillis();
+                if (!target.queued) {
+                    target.queued = true;
+                    ticket[0] = new Ticket(target, target.lastResultAt, sequence.incrementAndGet());
+                }
+            }
+            return target;
+        });
+
+        if (replaced[0] != null) {
+            supersede(mailbox, replaced[0]);
+        }
+        if (ticket[0] != null) {
+            ready.add(ticket[0]);
+        }
+
+        try {
+            return pending.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Detection failed", e.getCause());
+        } catch (TimeoutException e) {
+            pending.result.cancel(false);
+            // A worker may have picked the frame up already and still be reading it
+            frame.markNotRecyclable();
+            throw new DeepFaceRejectedException("Timed out waiting for a detection slot");
+        } catch (InterruptedException e) {
+            pending.result.cancel(false);
+            frame.markNotRecyclable();
+            Thread.currentThread().interrupt();
+            throw new DeepFaceRejectedException("Interrupted waiting for a detection slot");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.emotion.admission.idle-ms:60000}")
+    public void purgeIdle() {
+        if (!enabled) {
+            return;
+        }
+        long notAfter = System.currentTimeMillis() - idleMs;
+        for (String sessionId : mailboxes.keySet()) {
+            mailboxes.computeIfPresent(sessionId, (id, mailbox) -> {
+                synchronized (mailbox) {
+                    return mailbox.queued || mailbox.running || mailbox.touchedAt > notAfter ? mailbox : null;
+                }
+            });
+        }
+    }
+
+    private void supersede(SessionMailbox mailbox, Pending replaced) {
+        supersededCounter.increment();
+        EmotionDetectionResponse latest;
+        synchronized (mailbox) {
+            latest = mailbox.latest;
+        }
+        if (latest != null) {
+            replaced.result.complete(latest);
+        } else {
+            replaced.result.completeExceptionally(new FrameSupersededException(mailbox.sessionId));
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            Ticket ticket;
+            try {
+                ticket = ready.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            SessionMailbox mailbox = ticket.mailbox();
+            Pending pending;
+            synchronized (mailbox) {
+                pending = mailbox.pending;
+                mailbox.pending = null;
+                mailbox.queued = false;
+                mailbox.running = pending != null;
+            }
+            if (pending == null) {
+                continue;
+            }
+
+            try {
+                if (pending.result.isDone()) {
+                    continue;
+                }
+                EmotionDetectionResponse response = pending.detection.get();
+                synchronized (mailbox) {
+                    mailbox.latest = response;
+                    mailbox.lastResultAt = System.currentTimeMillis();
+                }
+                pending.result.complete(response);
+            } catch (RuntimeException e) {
+                pending.result.completeExceptionally(e);
+            } finally {
+                synchronized (mailbox) {
+                    mailbox.running = false;
+                }
+            }
+        }
+    }
+
+    private record Ticket(SessionMailbox mailbox, long lastResultAt, long sequence) {
+    }
+
+    private static final class Pending {
+        private final Supplier<EmotionDetectionResponse> detection;
+        private final CompletableFuture<EmotionDetectionResponse> result = new CompletableFuture<>();
+
+        private Pending(Supplier<EmotionDetectionResponse> detection) {
+            this.detection = detection;
+        }
+    }
+
+    // Guarded by its own monitor
+    private static final class SessionMailbox {
+        private final String sessionId;
+        private Pending pending;
+        private boolean queued;
+        private boolean running;
+        private EmotionDetectionResponse latest;
+        private long lastResultAt;
+        private long touchedAt;
+
+        private SessionMailbox(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        private synchronized Pending takePending() {
+            Pending taken = pending;
+            pending = null;
+            return taken;
+        }
+    }
+}
@@ -4,12 +4,9 @@ import com.emotionmusic.dto.EmotionDetectionRequest;
 import com.emotionmusic.dto.EmotionDetectionResponse;
 import com.emotionmusic.model.EmotionLog;
 import com.emotionmusic.model.EmotionType;
-import com.emotionmusic.repository.EmotionLogRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -20,30 +17,57 @@ import java.util.Random;
 public class EmotionDetectionService {
 
     @Autowired
-    private EmotionLogRepository emotionLogRepository;
+    private EmotionLogWriter emotionLogWriter;
 
-    @Value("${app.deepface.api-url}")
-    private String deepfaceApiUrl;
+    @Autowired
+    private EmotionStatistics emotionStatistics;
+
+    @Autowired
+    private DeepFaceClient deepFaceClient;
+
+    @Autowired
+    private DeepFaceBatcher deepFaceBatcher;
+
+    @Autowired
+    private FrameDeduplicator frameDeduplicator;
+
+    @Autowired
+    private DetectionAdmission detectionAdmission;
+
+    @Autowired
+    private DeepFaceCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private EmotionRecommender recommender;
 
     @Value("${app.deepface.enabled}")
     private boolean deepfaceEnabled;
 
-    private final RestTemplate restTemplate = new RestTemplate();
     private final Random random = new Random();
 
     public EmotionDetectionResponse detectEmotion(EmotionDetectionRequest request) {
+        return detectEmotion(ImageFrame.fromBase64(request.getImageData()), request.getSessionId());
+    }
+
+    public EmotionDetectionResponse detectEmotion(ImageFrame frame, String sessionId) {
+        if (sessionId != null && detectionAdmission.isEnabled()) {
+            return detectionAdmission.submit(sessionId, frame, () -> runDetection(frame, sessionId));
+        }
+        return runDetection(frame, sessionId);
+    }
+
+    private EmotionDetectionResponse runDetection(ImageFrame frame, String sessionId) {
         System.out.println("=== Emotion Detection Started ===");
         System.out.println("DeepFace enabled: " + deepfaceEnabled);
-        System.out.println("DeepFace API URL: " + deepfaceApiUrl);
         
         EmotionDetectionResponse response;
 
         if (deepfaceEnabled) {
             System.out.println("Calling DeepFace API...");
-            response = callDeepFaceAPI(request);
+            response = callDeepFaceAPI(frame, sessionId);
         } else {
             System.out.println("Using simulated emotion detection...");
-            response = simulateEmotionDetection(request);
+            response = simulateEmotionDetection(sessionId);
         }
 
         System.out.println("Detected emotion: " + response.getEmotion());
@@ -56,82 +80,118 @@ public class EmotionDetectionService {
             response.getConfidence(),
             response.getSessionId()
         );
-        emotionLogRepository.save(log);
+        emotionLogWriter.write(log);
+        emotionStatistics.record(response.getEmotion());
+        recommender.record(sessionId, response.getEmotion());
 
         return response;
     }
 
-    private EmotionDetectionResponse callDeepFaceAPI(EmotionDetectionRequest request) {
-        try {
-            System.out.println("Preparing DeepFace API request...");
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("img", request.getImageData());
-            requestBody.put("actions", new String[]{"emotion"});
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            
-            System.out.println("Sending request to DeepFace API...");
-            ResponseEntity<Map> response = restTemplate.exchange(
-                deepfaceApiUrl,
-                HttpMethod.POST,
-                entity,
-                Map.class
-            );
-
-            System.out.println("DeepFace API response status: " + response.getStatusCode());
-            System.out.println("DeepFace API response body: " + response.getBody());
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-                Map<String, Object> results = (Map<String, Object>) responseBody.get("results");
-                
-                if (results != null && !results.isEmpty()) {
-                    Map<String, Object> firstResult = (Map<String, Object>) results.get("0");
-                    Map<String, Double> emotions = (Map<String, Double>) firstResult.get("emotion");
-                    
-                    System.out.println("Raw emotions from DeepFace: " + emotions);
-                    
-                    // Find the emotion with highest confidence
-                    String dominantEmotion = emotions.entrySet().stream()
-                        .max(Map.Entry.comparingByValue())
-                        .map(Map.Entry::getKey)
-                        .orElse("neutral");
-                    
-                    Double confidence = emotions.get(dominantEmotion);
-                    // Normalize confidence to 0.0 - 1.0 range if needed
-                    if (confidence != null && confidence > 1.0) {
-                        confidence = confidence / 100.0;
-                    }
-                    
-                    System.out.println("Dominant emotion: " + dominantEmotion);
-                    System.out.println("Confidence: " + confidence);
-                    
+    private EmotionDetectionResponse callDeepFaceAPI(ImageFrame frame, String sessionId) {
+        Long frameHash = null;
+        if (sessionId != null && frameDeduplicator.isEnabled()) {
+            frameHash = frameDeduplicator.hash(frame);
+            if (frameHash != null) {
+                EmotionDetectionResponse cached = frameDeduplicator.lookup(sessionId, frameHash);
+                if (cached != null) {
+                    System.out.println("Frame matches a recent one, reusing " + cached.getEmotion());
                     return new EmotionDetectionResponse(
-                        EmotionType.fromString(dominantEmotion),
-                        confidence,
+                        cached.getEmotion(),
+                        cached.getConfidence(),
                         System.currentTimeMillis(),
-                        request.getSessionId()
+                        sessionId
                     );
+                }
+            }
+        }
+
+        if (!circuitBreaker.tryAcquire()) {
+            return simulateEmotionDetection(sessionId);
+        }
+
+        long startedAt = System.nanoTime();
+        boolean outcomeRecorded = false;
+        try {
+            Map<String, Object> firstResult;
+            if (deepFaceBatcher.isEnabled()) {
+                System.out.println("Queueing frame for batched DeepFace request...");
+                firstResult = deepFaceBatcher.analyze(frame);
+            } else {
+                Map<String, Object> responseBody;
+                if (frame.isBinary()) {
+                    System.out.println("Sending " + frame.getLength() + " byte frame to DeepFace API...");
+                    responseBody = deepFaceClient.analyzeImage(frame);
                 } else {
-                    System.out.println("No results found in DeepFace response");
+                    System.out.println("Preparing DeepFace API request...");
+                    Map<String, Object> requestBody = new HashMap<>();
+                    requestBody.put("img", frame.getBase64Data());
+                    requestBody.put("actions", new String[]{"emotion"});
+
+                    System.out.println("Sending request to DeepFace API...");
+                    responseBody = deepFaceClient.analyze(requestBody);
                 }
+                System.out.println("DeepFace API response body: " + responseBody);
+
+                Map<String, Object> results = (Map<String, Object>) responseBody.get("results");
+                firstResult = results != null ? (Map<String, Object>) results.get("0") : null;
+            }
+            circuitBreaker.onSuccess(System.nanoTime() - startedAt);
+            outcomeRecorded = true;
+
+            if (firstResult != null && firstResult.get("emotion") instanceof Map) {
+                Map<String, Object> emotions = (Map<String, Object>) firstResult.get("emotion");
+
+                System.out.println("Raw emotions from DeepFace: " + emotions);
+
+                // Find the emotion with highest confidence
+                String dominantEmotion = "neutral";
+                double confidence = 0.0;
+                for (Map.Entry<String, Object> entry : emotions.entrySet()) {
+                    if (entry.getValue() instanceof Number score && score.doubleValue() > confidence) {
+                        dominantEmotion = entry.getKey();
+                        confidence = score.doubleValue();
+                    }
+                }
+                // Normalize confidence to 0.0 - 1.0 range if needed
+                if (confidence > 1.0) {
+                    confidence = confidence / 100.0;
+                }
+
+                System.out.println("Dominant emotion: " + dominantEmotion);
+                System.out.println("Confidence: " + confidence);
+
+                EmotionDetectionResponse response = new EmotionDetectionResponse(
+                    EmotionType.fromString(dominantEmotion),
+                    confidence,
+                    System.currentTimeMillis(),
+                    sessionId
+                );
+                if (frameHash != null) {
+                    frameDeduplicator.store(sessionId, frameHash, response);
+                }
+                return response;
             } else {
-                System.out.println("DeepFace API returned non-OK status or null body");
+                System.out.println("No results found in DeepFace response");
+            }
+        } catch (DeepFaceRejectedException e) {
+            // Refused locally by the bulkhead or a full batch queue; says nothing about DeepFace
+            System.err.println("DeepFace call rejected: " + e.getMessage());
+            if (!outcomeRecorded) {
+                circuitBreaker.onIgnored();
             }
         } catch (Exception e) {
             System.err.println("Error calling DeepFace API: " + e.getMessage());
-            e.printStackTrace();
+            if (!outcomeRecorded) {
+                circuitBreaker.onFailure(System.nanoTime() - startedAt);
+            }
         }
 
         // Fallback to simulation if API call fails
         System.out.println("Falling back to simulated emotion detection...");
-        return simulateEmotionDetection(request);
+        return simulateEmotionDetection(sessionId);
     }
 
-    private EmotionDetectionResponse simulateEmotionDetection(EmotionDetectionRequest request) {
+    private EmotionDetectionResponse simulateEmotionDetection(String sessionId) {
         System.out.println("Simulating emotion detection...");
         // Simulate realistic emotion detection
         EmotionType[] emotions = EmotionType.values();
@@ -145,25 +205,11 @@ public class EmotionDetectionService {
             detectedEmotion,
             confidence,
             System.currentTimeMillis(),
-            request.getSessionId()
+            sessionId
         );
     }
 
     public Map<String, Long> getEmotionStatistics() {
-        Map<String, Long> stats = new HashMap<>();
-        
-        // Initialize all emotions with 0
-        for (EmotionType emotion : EmotionType.values()) {
-            stats.put(emotion.getValue(), 0L);
-        }
-        
-        // Get actual statistics from database
-        emotionLogRepository.getEmotionStatistics().forEach(result -> {
-            EmotionType emotion = (EmotionType) result[0];
-            Long count = (Long) result[1];
-            stats.put(emotion.getValue(), count);
-        });
-        
-        return stats;
+        return emotionStatistics.snapshot();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,245 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.model.EmotionLog;
+import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.repository.EmotionLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind pipeline for emotion logs. Detections enqueue a log and return; a single
+ * flusher thread drains the queue and writes JDBC batches. The id column stays
+ * AUTO_INCREMENT and is never read back, which is what lets MySQL accept the batch as
+ * multi-row INSERTs (rewriteBatchedStatements) instead of one round trip per row.
+ */
+@Component
+public class EmotionLogWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO emotion_logs (detected_emotion, confidence, timestamp, session_id) VALUES (?, ?, ?, ?)";
+
+    public enum OverflowPolicy { DROP_NEWEST, DROP_OLDEST, BLOCK }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmotionLogRepository emotionLogRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.emotion-log.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.emotion-log.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.emotion-log.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.emotion-log.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.emotion-log.write-behind.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${app.emotion-log.write-behind.max-block-ms:50}")
+    private long maxBlockMs;
+
+    @Value("${app.emotion-log.write-behind.max-attempts:3}")
+    private int maxAttempts;
+
+    private BlockingQueue<EmotionLog> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    // Logs accepted but not yet committed, per EmotionType ordinal, for statistics reconciliation
+    private final LongAdder[] pendingByEmotion = new LongAdder[EmotionType.values().length];
+    private final AtomicLong flushSequence = new AtomicLong();
+    private volatile boolean flushing;
+
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+    private Counter failedCounter;
+    private Timer flushTimer;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < pendingByEmotion.length; i++) {
+            pendingByEmotion[i] = new LongAdder();
+        }
+        if (!enabled) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("app.emotion-log.queued", queue, BlockingQueue::size)
+                .description("Emotion logs waiting to be written").register(meterRegistry);
+        writtenCounter = Counter.builder("app.emotion-log.written").register(meterRegistry);
+        droppedCounter = Counter.builder("app.emotion-log.dropped")
+                .description("Emotion logs dropped because the write-behind queue was full").register(meterRegistry);
+        failedCounter = Counter.builder("app.emotion-log.failed")
+                .description("Emotion logs lost after exhausting insert retries").register(meterRegistry);
+        flushTimer = Timer.builder("app.emotion-log.flush")
+                .description("Time to write one batch of emotion logs").register(meterRegistry);
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "emotion-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        // No interrupt: a batch in the middle of its INSERT is allowed to finish
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Whatever is still queued is written synchronously before the datasource closes
+        List<EmotionLog> remaining = new ArrayList<>(batchSize);
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            writeBatch(remaining);
+            remaining.clear();
+        }
+    }
+
+    public void write(EmotionLog log) {
+        if (!enabled) {
+            emotionLogRepository.save(log);
+            return;
+        }
+
+        if (log.getTimestamp() == null) {
+            log.setTimestamp(LocalDateTime.now());
+        }
+        pendingByEmotion[log.getDetectedEmotion().ordinal()].increment();
+        if (queue.offer(log)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> {
+                // Keep the freshest data: evict the head until the new entry fits
+                while (!queue.offer(log)) {
+                    EmotionLog evicted = queue.poll();
+                    if (evicted != null) {
+                        discard(evicted);
+                    }
+                }
+            }
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(log, maxBlockMs, TimeUnit.MILLISECONDS)) {
+                        discard(log);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    discard(log);
+                }
+            }
+            default -> discard(log);
+        }
+    }
+
+    public long[] getPendingCounts() {
+        long[] counts = new long[pendingByEmotion.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = pendingByEmotion[i].sum();
+        }
+        return counts;
+    }
+
+    // Changes whenever a batch leaves the pending set; callers compare it around a DB read
+    public long getFlushSequence() {
+        return flushSequence.get();
+    }
+
+    public boolean isFlushing() {
+        return flushing;
+    }
+
+    private void discard(EmotionLog log) {
+        pendingByEmotion[log.getDetectedEmotion().ordinal()].decrement();
+        droppedCounter.increment();
+    }
+
+    private void flushLoop() {
+        List<EmotionLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                EmotionLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private void writeBatch(List<EmotionLog> batch) {
+        flushing = true;
+        try {
+            insertBatch(batch);
+        } finally {
+            for (EmotionLog log : batch) {
+                pendingByEmotion[log.getDetectedEmotion().ordinal()].decrement();
+            }
+            flushSequence.incrementAndGet();
+            flushing = false;
+        }
+    }
+
+    private void insertBatch(List<EmotionLog> batch) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                flushTimer.record(() -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, log) -> {
+                    ps.setString(1, log.getDetectedEmotion().name());
+                    ps.setDouble(2, log.getConfidence());
+                    ps.setTimestamp(3, Timestamp.valueOf(log.getTimestamp()));
+                    ps.setString(4, log.getSessionId());
+                }));
+                writtenCounter.increment(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Failed to write " + batch.size() + " emotion logs (attempt " + attempt + "): "
+                        + e.getMessage());
+                if (attempt < maxAttempts) {
+                    try {
+                        Thread.sleep(flushIntervalMs * attempt);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        failedCounter.increment(batch.size());
+    }
+}
@@ -0,0 +1,241 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.Recommendation;
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.model.EmotionType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Next-up songs from how moods move. Every detection counts a transition from the session's
+ * previous emotion into a 7x7 matrix of that session and into a global one (flat atomic
+ * arrays, so detections never lock). A recommendation predicts the next emotion from the
+ * session's row, smoothed towards the global row while the session has few transitions, and
+ * blends it with staying in the current emotion. Songs are then taken from each emotion in
+ * proportion to that weight, best first, from the in-memory catalog.
+ */
+@Component
+public class EmotionRecommender {
+
+    private static final EmotionType[] EMOTIONS = EmotionType.values();
+    private static final int N = EMOTIONS.length;
+    private static final int NONE = -1;
+    private static final String SEED_SQL = "SELECT session_id, detected_emotion FROM emotion_logs "
+            + "WHERE session_id IS NOT NULL AND timestamp >= ? ORDER BY session_id, timestamp, id";
+
+    @Autowired
+    private SongService songService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.recommendations.enabled:true}")
+    private boolean enabled;
+
+    // How many session transitions the global row counts as
+    @Value("${app.recommendations.prior-weight:5}")
+    private double priorWeight;
+
+    // Share of the list kept for the current emotion before the predicted next ones
+    @Value("${app.recommendations.stay-weight:0.5}")
+    private double stayWeight;
+
+    @Value("${app.recommendations.max-sessions:100000}")
+    private int maxSessions;
+
+    @Value("${app.recommendations.idle-ms:1800000}")
+    private long idleMs;
+
+    @Value("${app.recommendations.seed-days:30}")
+    private int seedDays;
+
+    // Row-major: [from * N + to]
+    private final AtomicLongArray global = new AtomicLongArray(N * N);
+    private final Map<String, SessionModel> sessions = new ConcurrentHashMap<>();
+    private Timer recommendTimer;
+
+    @PostConstruct
+    void init() {
+        recommendTimer = Timer.builder("app.recommendations.latency").register(meterRegistry);
+        Gauge.builder("app.recommendations.sessions", sessions, Map::size).register(meterRegistry);
+    }
+
+    // Seeds the global matrix from logged detections so a fresh process doesn't start flat
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromLogs() {
+        if (!enabled || seedDays <= 0) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            long[] seeded = new long[1];
+            String[] previousSession = new String[1];
+            int[] previous = {NONE};
+            try {
+                jdbcTemplate.query(SEED_SQL, rs -> {
+                    String sessionId = rs.getString(1);
+                    int to = EmotionType.valueOf(rs.getString(2)).ordinal();
+                    if (sessionId.equals(previousSession[0]) && previous[0] != NONE) {
+                        global.incrementAndGet(previous[0] * N + to);
+                        seeded[0]++;
+                    }
+                    previousSession[0] = sessionId;
+                    previous[0] = to;
+                }, Timestamp.valueOf(LocalDateTime.now().minusDays(seedDays)));
+                System.out.println("Emotion transitions seeded from logs: " + seeded[0]);
+            } catch (RuntimeException e) {
+                System.err.println("Could not seed emotion transitions: " + e.getMessage());
+            }
+        }, "emotion-transitions-seed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Counts the transition from the session's previous detection. Sessions beyond
+     * max-sessions are not tracked until idle ones are purged.
+     */
+    public void record(String sessionId, EmotionType emotion) {
+        if (!enabled || sessionId == null || emotion == null) {
+            return;
+        }
+        SessionModel model = sessions.get(sessionId);
+        if (model == null) {
+            if (sessions.size() >= maxSessions) {
+                return;
+            }
+            model = sessions.computeIfAbsent(sessionId, id -> new SessionModel());
+        }
+        int to = emotion.ordinal();
+        int from = model.last.getAndSet(to);
+        model.touchedAt = System.currentTimeMillis();
+        if (from != NONE) {
+            model.counts.incrementAndGet(from * N + to);
+            global.incrementAndGet(from * N + to);
+        }
+    }
+
+    /**
+     * Up to {@code limit} songs for the session. {@code emotion} overrides the session's last
+     * detected emotion; with neither, neutral is assumed.
+     */
+    public Recommendation recommend(String sessionId, EmotionType emotion, int limit) {
+        return recommendTimer.record(() -> {
+            SessionModel model = sessionId != null ? sessions.get(sessionId) : null;
+            EmotionType current = emotion;
+            if (current == null && model != null && model.last.get() != NONE) {
+                current = EMOTIONS[model.last.get()];
+            }
+            if (current == null) {
+                current = EmotionType.NEUTRAL;
+            }
+
+            double[] next = predictNext(current.ordinal(), model);
+            double[] weights = new double[N];
+            for (int i = 0; i < N; i++) {
+                weights[i] = (1 - stayWeight) * next[i] + (i == current.ordinal() ? stayWeight : 0);
+            }
+            Map<EmotionType, Double> nextEmotions = new EnumMap<>(EmotionType.class);
+            for (EmotionType candidate : EMOTIONS) {
+                nextEmotions.put(candidate, next[candidate.ordinal()]);
+            }
+            return new Recommendation(sessionId, current, nextEmotions, pickSongs(weights, limit, sessionId));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.recommendations.idle-ms:1800000}")
+    public void purgeIdle() {
+        long notAfter = System.currentTimeMillis() - idleMs;
+        sessions.values().removeIf(model -> model.touchedAt < notAfter);
+    }
+
+    // P(next = i | current), Laplace-smoothed global row as the prior for the session's row
+    private double[] predictNext(int from, SessionModel model) {
+        long globalTotal = 0;
+        long sessionTotal = 0;
+        for (int to = 0; to < N; to++) {
+            globalTotal += global.get(from * N + to);
+            if (model != null) {
+                sessionTotal += model.counts.get(from * N + to);
+            }
+        }
+        double[] next = new double[N];
+        for (int to = 0; to < N; to++) {
+            double prior = (global.get(from * N + to) + 1.0) / (globalTotal + N);
+            double observed = model != null ? model.counts.get(from * N + to) : 0;
+            next[to] = (observed + priorWeight * prior) / (sessionTotal + priorWeight);
+        }
+        return next;
+    }
+
+    // Slots per emotion by largest remainder; emotions short of songs pass their slots down
+    private List<SongDTO> pickSongs(double[] weights, int limit, String sessionId) {
+        Integer[] order = new Integer[N];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingDouble(i -> -weights[i]));
+
+        int[] slots = new int[N];
+        double[] remainders = new double[N];
+        int assigned = 0;
+        for (int i = 0; i < N; i++) {
+            double share = weights[i] * limit;
+            slots[i] = (int) share;
+            remainders[i] = share - slots[i];
+            assigned += slots[i];
+        }
+        Integer[] byRemainder = order.clone();
+        Arrays.sort(byRemainder, Comparator.comparingDouble(i -> -remainders[i]));
+        for (int i = 0; assigned < limit; i = (i + 1) % N) {
+            slots[byRemainder[i]]++;
+            assigned++;
+        }
+
+        List<SongDTO> songs = new ArrayList<>(limit);
+        int carried = 0;
+        for (int i : order) {
+            int wanted = slots[i] + carried;
+            if (wanted == 0) {
+                continue;
+            }
+            int before = songs.size();
+            songService.getRandomSongsByEmotion(EMOTIONS[i], wanted, sessionId)
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .forEach(songs::add);
+            carried = wanted - (songs.size() - before);
+        }
+        return songs;
+    }
+
+    // 49 int counters plus the last emotion: roughly 0.4 KB per session with its map entry
+    private static final class SessionModel {
+        private final AtomicIntegerArray counts = new AtomicIntegerArray(N * N);
+        private final AtomicInteger last = new AtomicInteger(NONE);
+        private volatile long touchedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,93 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.repository.EmotionLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-emotion detection counters kept in memory so /emotion/statistics never scans
+ * emotion_logs. Counts are seeded by the first reconciliation at startup and then
+ * periodically corrected against the table, which also picks up other nodes' writes.
+ */
+@Component
+public class EmotionStatistics {
+
+    private static final EmotionType[] EMOTIONS = EmotionType.values();
+
+    @Autowired
+    private EmotionLogRepository emotionLogRepository;
+
+    @Autowired
+    private EmotionLogWriter emotionLogWriter;
+
+    private final LongAdder[] counters = new LongAdder[EMOTIONS.length];
+
+    public EmotionStatistics() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    public void record(EmotionType emotion) {
+        counters[emotion.ordinal()].increment();
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        for (EmotionType emotion : EMOTIONS) {
+            stats.put(emotion.getValue(), counters[emotion.ordinal()].sum());
+        }
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${app.emotion-statistics.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        for (int attempt = 0; attempt < 5; attempt++) {
+            if (tryReconcile()) {
+                return;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean tryReconcile() {
+        long sequenceBefore = emotionLogWriter.getFlushSequence();
+        if (emotionLogWriter.isFlushing()) {
+            return false;
+        }
+
+        long[] target = new long[EMOTIONS.length];
+        try {
+            emotionLogRepository.getEmotionStatistics().forEach(result -> {
+                EmotionType emotion = (EmotionType) result[0];
+                target[emotion.ordinal()] = (Long) result[1];
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Could not reconcile emotion statistics: " + e.getMessage());
+            return true;
+        }
+        long[] pending = emotionLogWriter.getPendingCounts();
+
+        // A batch committed while we were reading may be in both or neither snapshot; retry next round
+        if (emotionLogWriter.isFlushing() || emotionLogWriter.getFlushSequence() != sequenceBefore) {
+            return false;
+        }
+
+        for (int i = 0; i < counters.length; i++) {
+            // Apply a delta instead of reset() so concurrent increments are not wiped out
+            counters[i].add(target[i] + pending[i] - counters[i].sum());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+package com.emotionmusic.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+@Component
+public class FrameBufferPool {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.emotion.frame.buffer-size:262144}")
+    private int bufferSize;
+
+    @Value("${app.emotion.frame.pool-size:64}")
+    private int poolSize;
+
+    @Value("${app.emotion.frame.max-bytes:2097152}")
+    private int maxFrameBytes;
+
+    private BlockingQueue<byte[]> pool;
+    private Counter missCounter;
+
+    @PostConstruct
+    void init() {
+        pool = new ArrayBlockingQueue<>(poolSize);
+        Gauge.builder("app.emotion.frame.pool.available", pool, BlockingQueue::size).register(meterRegistry);
+        missCounter = Counter.builder("app.emotion.frame.pool.misses")
+                .description("Frame reads that had to allocate a fresh buffer").register(meterRegistry);
+    }
+
+    public int getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    /**
+     * Reads a whole frame into a pooled buffer. The returned frame's buffer must be given
+     * back with {@link #release(ImageFrame)} once nothing references it any more.
+     */
+    public ImageFrame read(InputStream in, long contentLength, String contentType) throws IOException {
+        if (contentLength > maxFrameBytes) {
+            throw new FrameTooLargeException(maxFrameBytes);
+        }
+
+        byte[] buffer = acquire(contentLength > 0 ? (int) contentLength : bufferSize);
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                // Probe one byte so an exactly-sized buffer is not grown needlessly
+                int next = in.read();
+                if (next < 0) {
+                    break;
+                }
+                if (buffer.length >= maxFrameBytes) {
+                    release(buffer);
+                    throw new FrameTooLargeException(maxFrameBytes);
+                }
+                byte[] grown = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxFrameBytes));
+                release(buffer);
+                buffer = grown;
+                buffer[length++] = (byte) next;
+                continue;
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return ImageFrame.fromBytes(buffer, length, contentType);
+    }
+
+    public void release(ImageFrame frame) {
+        if (frame != null && frame.isBinary() && frame.isRecyclable()) {
+            release(frame.getBytes());
+        }
+    }
+
+    private byte[] acquire(int minimumSize) {
+        if (minimumSize <= bufferSize) {
+            byte[] buffer = pool.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        missCounter.increment();
+        return new byte[Math.max(minimumSize, bufferSize)];
+    }
+
+    private void release(byte[] buffer) {
+        // Oversized buffers are left to the GC so the pool's footprint stays fixed
+        if (buffer.length == bufferSize) {
+            pool.offer(buffer);
+        }
+    }
+
+    public static class FrameTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public FrameTooLargeException(int maxFrameBytes) {
+            super("Frame exceeds " + maxFrameBytes + " bytes");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.EmotionDetectionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the last few DeepFace results per session keyed by a 64-bit difference hash
+ * (dHash) of the frame, so near-identical frames reuse a result instead of calling the model.
+ */
+@Component
+public class FrameDeduplicator {
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    // Decode at roughly this many pixels per side; the hash only needs a 9x8 thumbnail
+    private static final int DECODE_TARGET = 64;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.emotion.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.emotion.dedup.hamming-threshold:6}")
+    private int hammingThreshold;
+
+    @Value("${app.emotion.dedup.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${app.emotion.dedup.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${app.emotion.dedup.entries-per-session:4}")
+    private int entriesPerSession;
+
+    private Map<String, SessionEntries> sessions;
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    void init() {
+        // Access-ordered so the least recently active session is evicted first
+        sessions = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SessionEntries> eldest) {
+                return size() > maxSessions;
+            }
+        };
+        hitCounter = Counter.builder("app.emotion.dedup.hits")
+                .description("Frames answered from the perceptual-hash cache").register(meterRegistry);
+        missCounter = Counter.builder("app.emotion.dedup.misses").register(meterRegistry);
+        Gauge.builder("app.emotion.dedup.hit-ratio", this, FrameDeduplicator::getHitRatio).register(meterRegistry);
+        Gauge.builder("app.emotion.dedup.sessions", this, FrameDeduplicator::getSessionCount).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the 64-bit dHash of the frame, or {@code null} when the image cannot be decoded.
+     */
+    public Long hash(ImageFrame frame) {
+        try {
+            BufferedImage image = decodeSubsampled(frame);
+            if (image == null) {
+                return null;
+            }
+
+            BufferedImage thumbnail = new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D graphics = thumbnail.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+            graphics.dispose();
+
+            long hash = 0;
+            for (int y = 0; y < HASH_HEIGHT; y++) {
+                for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                    int left = thumbnail.getRaster().getSample(x, y, 0);
+                    int right = thumbnail.getRaster().getSample(x + 1, y, 0);
+                    hash = (hash << 1) | (left > right ? 1 : 0);
+                }
+            }
+            return hash;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public EmotionDetectionResponse lookup(String sessionId, long hash) {
+        long now = System.currentTimeMillis();
+        EmotionDetectionResponse cached = null;
+        synchronized (sessions) {
+            SessionEntries entries = sessions.get(sessionId);
+            if (entries != null) {
+                cached = entries.find(hash, hammingThreshold, now - ttlMs);
+            }
+        }
+        if (cached == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return cached;
+    }
+
+    public void store(String sessionId, long hash, EmotionDetectionResponse response) {
+        synchronized (sessions) {
+            sessions.computeIfAbsent(sessionId, id -> new SessionEntries(entriesPerSession))
+                    .add(hash, response, System.currentTimeMillis());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.emotion.dedup.ttl-ms:30000}")
+    public void purgeExpired() {
+        long notBefore = System.currentTimeMillis() - ttlMs;
+        synchronized (sessions) {
+            sessions.values().removeIf(entries -> entries.newest() < notBefore);
+        }
+    }
+
+    private double getHitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    private int getSessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private BufferedImage decodeSubsampled(ImageFrame frame) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(frame.getBytes(), 0, frame.getLength()))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / DECODE_TARGET);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Small ring of recent (hash, result) pairs for one session
+    private static final class SessionEntries {
+        private final long[] hashes;
+        private final long[] storedAt;
+        private final EmotionDetectionResponse[] responses;
+        private int next;
+
+        private SessionEntries(int capacity) {
+            hashes = new long[capacity];
+            storedAt = new long[capacity];
+            responses = new EmotionDetectionResponse[capacity];
+        }
+
+        private EmotionDetectionResponse find(long hash, int threshold, long notBefore) {
+            EmotionDetectionResponse best = null;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < hashes.length; i++) {
+                if (responses[i] == null || storedAt[i] < notBefore) {
+                    continue;
+                }
+                int distance = Long.bitCount(hashes[i] ^ hash);
+                if (distance <= threshold && distance < bestDistance) {
+                    best = responses[i];
+                    bestDistance = distance;
+                }
+            }
+            return best;
+        }
+
+        private long newest() {
+            long newest = 0;
+            for (long time : storedAt) {
+                newest = Math.max(newest, time);
+            }
+            return newest;
+        }
+
+        private void add(long hash, EmotionDetectionResponse response, long now) {
+            hashes[next] = hash;
+            storedAt[next] = now;
+            responses[next] = response;
+            next = (next + 1) % hashes.length;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.emotionmusic.service;
+
+public class FrameSupersededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public FrameSupersededException(String sessionId) {
+        super("Frame for session " + sessionId + " was superseded by a newer one");
+    }
+}
@@ -0,0 +1,89 @@
+package com.emotionmusic.service;
+
+import java.util.Base64;
+
+/**
+ * A webcam frame as it travels to DeepFace: either the legacy base64 string from the JSON
+ * contract or raw image bytes in a (possibly pooled, oversized) buffer.
+ */
+public final class ImageFrame {
+
+    private static final String DEFAULT_CONTENT_TYPE = "image/jpeg";
+
+    private final String base64Data;
+    private byte[] bytes;
+    private int length;
+    private String contentType;
+    private volatile boolean recyclable = true;
+
+    private ImageFrame(String base64Data, byte[] bytes, int length, String contentType) {
+        this.base64Data = base64Data;
+        this.bytes = bytes;
+        this.length = length;
+        this.contentType = contentType;
+    }
+
+    public static ImageFrame fromBase64(String base64Data) {
+        return new ImageFrame(base64Data, null, 0, null);
+    }
+
+    public static ImageFrame fromBytes(byte[] bytes, int length, String contentType) {
+        return new ImageFrame(null, bytes, length, contentType != null ? contentType : DEFAULT_CONTENT_TYPE);
+    }
+
+    public boolean isBinary() {
+        return base64Data == null;
+    }
+
+    public String getBase64Data() {
+        return base64Data;
+    }
+
+    // Only bytes[0, getLength()) are valid; the array may be a larger pooled buffer
+    public byte[] getBytes() {
+        if (bytes == null) {
+            decode();
+        }
+        return bytes;
+    }
+
+    public int getLength() {
+        if (bytes == null) {
+            decode();
+        }
+        return length;
+    }
+
+    public String getContentType() {
+        if (contentType == null) {
+            decode();
+        }
+        return contentType;
+    }
+
+    public boolean isRecyclable() {
+        return recyclable;
+    }
+
+    // Called when something may still read the buffer after the request finished
+    public void markNotRecyclable() {
+        recyclable = false;
+    }
+
+    private void decode() {
+        String data = base64Data;
+        String type = DEFAULT_CONTENT_TYPE;
+        // Handle data URL format (data:image/jpeg;base64,...)
+        int comma = data.indexOf(',');
+        if (data.startsWith("data:") && comma > 0) {
+            int semicolon = data.indexOf(';');
+            if (semicolon > 5 && semicolon < comma) {
+                type = data.substring(5, semicolon);
+            }
+            data = data.substring(comma + 1);
+        }
+        bytes = Base64.getMimeDecoder().decode(data);
+        length = bytes.length;
+        contentType = type;
+    }
+}
@@ -0,0 +1,214 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.model.EmotionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the emotion playlists in step with the catalog. Song events are folded into the
+ * latest state per song, and a single thread applies them every flush interval: one
+ * statement per changed song against the playlist of its current emotion (plus one per
+ * playlist it left), then the same changes applied to the cached playlists copy-on-write.
+ * A burst of uploads is therefore one batch and one cache version bump (none when no row
+ * changed), and no change rescans a category.
+ */
+@Component
+public class PlaylistMaterializer {
+
+    // Adds the song to the playlist of the emotion it has now, if that playlist exists
+    private static final String ADD_SQL = "INSERT INTO playlist_songs (playlist_id, song_id) "
+            + "SELECT p.id, s.id FROM songs s JOIN playlists p ON p.emotion = s.emotion_category WHERE s.id = ? "
+            + "AND NOT EXISTS (SELECT 1 FROM playlist_songs ps WHERE ps.playlist_id = p.id AND ps.song_id = s.id)";
+    private static final String REMOVE_SQL = "DELETE FROM playlist_songs "
+            + "WHERE song_id = ? AND playlist_id IN (SELECT id FROM playlists WHERE emotion = ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SongCatalogCache catalogCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.playlists.events.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.playlists.batch-size:500}")
+    private int batchSize;
+
+    // Songs with changes not applied yet, in arrival order; guarded by itself
+    private final Map<Long, PendingChange> pending = new LinkedHashMap<>();
+    private Thread worker;
+    private volatile boolean running;
+
+    private Counter received;
+    private Counter applied;
+
+    @PostConstruct
+    void init() {
+        received = Counter.builder("app.playlists.events").tag("result", "received").register(meterRegistry);
+        applied = Counter.builder("app.playlists.events").tag("result", "applied")
+                .description("Song changes written after coalescing; lower than received during bursts")
+                .register(meterRegistry);
+        running = true;
+        worker = new Thread(this::flushLoop, "playlist-materializer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    @EventListener
+    public void onSongChanged(SongCatalogEvent event) {
+        received.increment();
+        synchronized (pending) {
+            pending.computeIfAbsent(event.getSongId(), id -> new PendingChange()).merge(event);
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMs);
+                flush();
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                System.err.println("Playlist update failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void flush() {
+        Map<Long, PendingChange> changes;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+
+        List<Long> adds = new ArrayList<>();
+        List<Object[]> removes = new ArrayList<>();
+        Map<EmotionType, Set<Long>> joined = new EnumMap<>(EmotionType.class);
+        Map<EmotionType, Set<Long>> left = new EnumMap<>(EmotionType.class);
+        changes.forEach((songId, change) -> {
+            if (change.deleted) {
+                // SongService removed its playlist entries and the cached playlists with the row
+                return;
+            }
+            adds.add(songId);
+            joined.computeIfAbsent(change.emotion, emotion -> new HashSet<>()).add(songId);
+            for (EmotionType previous : change.left) {
+                if (previous != change.emotion) {
+                    removes.add(new Object[]{songId, previous.name()});
+                    left.computeIfAbsent(previous, emotion -> new HashSet<>()).add(songId);
+                }
+            }
+        });
+
+        boolean rowsChanged;
+        try {
+            rowsChanged = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                boolean removed = anyChanged(jdbcTemplate.batchUpdate(REMOVE_SQL, removes));
+                boolean added = false;
+                for (int[] counts : jdbcTemplate.batchUpdate(ADD_SQL, adds, batchSize,
+                        (ps, songId) -> ps.setLong(1, songId))) {
+                    added |= anyChanged(counts);
+                }
+                return removed || added;
+            }));
+        } catch (DataAccessException e) {
+            // E.g. a playlist build inserted one of these rows first; apply what still can be
+            rowsChanged = applyOneByOne(adds, removes);
+        }
+        applied.increment(changes.size());
+        // Songs joining a playlist with no row to add (no playlist for the emotion, or already
+        // a member) leave the cache and the ETags alone
+        if (rowsChanged) {
+            catalogCache.changePlaylists(joined, left);
+        }
+    }
+
+    private boolean applyOneByOne(List<Long> adds, List<Object[]> removes) {
+        boolean changed = false;
+        for (Object[] remove : removes) {
+            try {
+                changed |= jdbcTemplate.update(REMOVE_SQL, remove) > 0;
+            } catch (DataAccessException e) {
+                System.err.println("Could not remove song " + remove[0] + " from playlist " + remove[1] + ": "
+                        + e.getMessage());
+            }
+        }
+        for (Long songId : adds) {
+            try {
+                changed |= jdbcTemplate.update(ADD_SQL, songId) > 0;
+            } catch (DataAccessException e) {
+                System.err.println("Could not add song " + songId + " to its playlist: " + e.getMessage());
+            }
+        }
+        return changed;
+    }
+
+    // Drivers that rewrite batches report SUCCESS_NO_INFO instead of a row count
+    private static boolean anyChanged(int[] counts) {
+        for (int count : counts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class PendingChange {
+        // Where the song belongs after the last event
+        private EmotionType emotion;
+        private boolean deleted;
+        // Emotions whose playlists may still list the song
+        private final Set<EmotionType> left = EnumSet.noneOf(EmotionType.class);
+
+        private void merge(SongCatalogEvent event) {
+            switch (event.getType()) {
+                case CREATED -> emotion = event.getEmotion();
+                case DELETED -> {
+                    deleted = true;
+                    left.add(event.getEmotion());
+                }
+                case RECATEGORIZED -> {
+                    left.add(event.getPreviousEmotion());
+                    emotion = event.getEmotion();
+                }
+            }
+        }
+    }
+}
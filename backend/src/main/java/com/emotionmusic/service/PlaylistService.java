@@ -1,95 +1,265 @@
 package com.emotionmusic.service;
 
+import com.emotionmusic.dto.PlaylistChangeResult;
 import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.dto.SongPage;
 import com.emotionmusic.model.EmotionType;
-import com.emotionmusic.model.Playlist;
-import com.emotionmusic.model.Song;
 import com.emotionmusic.repository.PlaylistRepository;
 import com.emotionmusic.repository.SongRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class PlaylistService {
 
+    // Insert-if-absent, so a concurrent add of the same song is a no-op rather than a key violation
+    private static final String ADD_MEMBER = "INSERT INTO playlist_songs (playlist_id, song_id) "
+            + "SELECT ?, s.id FROM songs s WHERE s.id = ? "
+            + "AND NOT EXISTS (SELECT 1 FROM playlist_songs ps WHERE ps.playlist_id = ? AND ps.song_id = s.id)";
+    private static final String REMOVE_MEMBER = "DELETE FROM playlist_songs WHERE playlist_id = ? AND song_id = ?";
+    private static final String INSERT_PLAYLIST = "INSERT INTO playlists (emotion, created_at, updated_at) VALUES (?, ?, ?)";
+    private static final String FILL_PLAYLIST = "INSERT INTO playlist_songs (playlist_id, song_id) "
+            + "SELECT p.id, s.id FROM playlists p JOIN songs s ON s.emotion_category = p.emotion WHERE p.emotion = ?";
+
     @Autowired
     private PlaylistRepository playlistRepository;
 
     @Autowired
     private SongRepository songRepository;
 
+    @Autowired
+    private SongCatalogCache catalogCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.playlists.batch-size:500}")
+    private int batchSize;
+
+    // Playlist builds in progress, so concurrent first requests for an emotion build it once
+    private final Map<EmotionType, CompletableFuture<BuiltPlaylist>> builds = new ConcurrentHashMap<>();
+
     public List<SongDTO> getPlaylistByEmotion(EmotionType emotion) {
-        Optional<Playlist> playlistOpt = playlistRepository.findByEmotion(emotion);
-        
-        if (playlistOpt.isPresent()) {
-            return playlistOpt.get().getSongs().stream()
-                    .map(this::convertSongToDTO)
-                    .collect(Collectors.toList());
+        List<SongDTO> cached = catalogCache.getPlaylist(emotion);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = catalogCache.version();
+        List<SongDTO> songs = playlistRepository.findSongs(emotion);
+        if (!songs.isEmpty() || playlistRepository.existsByEmotion(emotion)) {
+            return catalogCache.putPlaylist(emotion, songs, version);
         }
         
         // If no playlist exists, create one with all songs of that emotion
         return createPlaylistForEmotion(emotion);
     }
 
+    /**
+     * Returns the emotion's playlist, creating it from all songs of that emotion if there is
+     * none yet. Concurrent calls for one emotion share a single build: the first caller runs
+     * it and the others wait for its result.
+     */
     public List<SongDTO> createPlaylistForEmotion(EmotionType emotion) {
-        List<Song> songs = songRepository.findByEmotionCategory(emotion);
-        
-        Playlist playlist = new Playlist(emotion);
-        playlist.setSongs(songs);
-        playlistRepository.save(playlist);
-        
-        return songs.stream()
-                .map(this::convertSongToDTO)
-                .collect(Collectors.toList());
+        return buildOnce(emotion).songs;
+    }
+
+    private BuiltPlaylist buildOnce(EmotionType emotion) {
+        CompletableFuture<BuiltPlaylist> build = new CompletableFuture<>();
+        CompletableFuture<BuiltPlaylist> running = builds.putIfAbsent(emotion, build);
+        if (running == null) {
+            try {
+                build.complete(build(emotion));
+            } catch (RuntimeException e) {
+                build.completeExceptionally(e);
+            } finally {
+                builds.remove(emotion, build);
+            }
+            running = build;
+        }
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    // The playlist row and its songs go in one transaction; the unique emotion key turns a
+    // concurrent insert (e.g. from another instance) into "use theirs"
+    private BuiltPlaylist build(EmotionType emotion) {
+        if (!playlistRepository.existsByEmotion(emotion)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    jdbcTemplate.update(INSERT_PLAYLIST, emotion.name(), now, now);
+                    jdbcTemplate.update(FILL_PLAYLIST, emotion.name());
+                });
+                Counter.builder("app.playlists.builds").tag("emotion", emotion.name())
+                        .register(meterRegistry).increment();
+                catalogCache.invalidatePlaylist(emotion);
+            } catch (DuplicateKeyException e) {
+                System.out.println("Playlist for " + emotion + " was created concurrently, using that one");
+            }
+        }
+        long version = catalogCache.version();
+        Long playlistId = playlistRepository.findIdByEmotion(emotion)
+                .orElseThrow(() -> new IllegalStateException("Playlist for " + emotion + " not found after creation"));
+        return new BuiltPlaylist(playlistId,
+                catalogCache.putPlaylist(emotion, playlistRepository.findSongs(emotion), version));
+    }
+
+    public SongPage getPlaylistPage(EmotionType emotion, SongCursor after, int limit) {
+        if (catalogCache.isEnabled()) {
+            return after.page(getPlaylistByEmotion(emotion), limit);
+        }
+        if (!playlistRepository.existsByEmotion(emotion)) {
+            createPlaylistForEmotion(emotion);
+        }
+        return SongCursor.toPage(playlistRepository.findSongPageBefore(
+                emotion, after.getCreatedAt(), after.getId(), PageRequest.of(0, limit + 1)), limit);
     }
 
     public void addSongToPlaylist(EmotionType emotion, Long songId) {
-        Optional<Song> songOpt = songRepository.findById(songId);
-        if (songOpt.isEmpty()) {
+        if (!songRepository.existsById(songId)) {
             throw new IllegalArgumentException("Song not found");
         }
+        changeSongs(emotion, List.of(songId), List.of());
+    }
 
-        Song song = songOpt.get();
-        Optional<Playlist> playlistOpt = playlistRepository.findByEmotion(emotion);
-        
-        Playlist playlist;
-        if (playlistOpt.isPresent()) {
-            playlist = playlistOpt.get();
-        } else {
-            playlist = new Playlist(emotion);
+    @Transactional
+    public void removeSongFromPlaylist(EmotionType emotion, Long songId) {
+        Long playlistId = playlistRepository.findIdByEmotion(emotion)
+                .orElseThrow(() -> new IllegalArgumentException("Playlist not found"));
+        if (jdbcTemplate.update(REMOVE_MEMBER, playlistId, songId) > 0) {
+            catalogCache.invalidatePlaylist(emotion);
         }
-        
-        if (!playlist.getSongs().contains(song)) {
-            playlist.getSongs().add(song);
-            playlistRepository.save(playlist);
+    }
+
+    /**
+     * Adds and removes songs in one transaction. Membership is looked up for just the given
+     * ids and only actual changes are written, as JDBC batches against playlist_songs, so the
+     * cost doesn't depend on the playlist's size. Removals go first, so an id in both lists
+     * ends up in the playlist. A missing playlist is built first, as by
+     * {@link #createPlaylistForEmotion}, when there is something to add.
+     */
+    public PlaylistChangeResult changeSongs(EmotionType emotion, Collection<Long> add, Collection<Long> remove) {
+        Optional<Long> existing = playlistRepository.findIdByEmotion(emotion);
+        if (existing.isEmpty() && add.isEmpty()) {
+            return new PlaylistChangeResult(0, 0, List.of());
         }
+        // Built outside the change's transaction, so that one sees the committed playlist
+        Long playlistId = existing.isPresent() ? existing.get() : buildOnce(emotion).id;
+        return transactionTemplate.execute(status -> applyChanges(emotion, playlistId, add, remove));
     }
 
-    public void removeSongFromPlaylist(EmotionType emotion, Long songId) {
-        Optional<Playlist> playlistOpt = playlistRepository.findByEmotion(emotion);
-        if (playlistOpt.isEmpty()) {
-            throw new IllegalArgumentException("Playlist not found");
+    private PlaylistChangeResult applyChanges(EmotionType emotion, Long playlistId,
+                                              Collection<Long> add, Collection<Long> remove) {
+        List<Long> removed = new ArrayList<>();
+        for (List<Long> chunk : chunks(remove)) {
+            removed.addAll(playlistRepository.findMemberIds(playlistId, chunk));
+        }
+        writeMembers(REMOVE_MEMBER, playlistId, removed);
+
+        Set<Long> members = new HashSet<>();
+        Set<Long> known = new HashSet<>();
+        for (List<Long> chunk : chunks(add)) {
+            known.addAll(songRepository.findExistingIds(chunk));
+            members.addAll(playlistRepository.findMemberIds(playlistId, chunk));
+        }
+        members.removeAll(removed);
+        List<Long> candidates = new ArrayList<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long songId : new LinkedHashSet<>(add)) {
+            if (!known.contains(songId)) {
+                unknown.add(songId);
+            } else if (!members.contains(songId)) {
+                candidates.add(songId);
+            }
         }
+        int added = addMembers(playlistId, candidates);
 
-        Playlist playlist = playlistOpt.get();
-        playlist.getSongs().removeIf(song -> song.getId().equals(songId));
-        playlistRepository.save(playlist);
+        if (added > 0 || !removed.isEmpty()) {
+            catalogCache.invalidatePlaylist(emotion);
+        }
+        return new PlaylistChangeResult(added, removed.size(), unknown);
     }
 
-    private SongDTO convertSongToDTO(Song song) {
-        SongDTO dto = new SongDTO();
-        dto.setId(song.getId());
-        dto.setTitle(song.getTitle());
-        dto.setArtist(song.getArtist());
-        dto.setEmotionCategory(song.getEmotionCategory());
-        dto.setFilePath(song.getFilePath());
-        dto.setFileSize(song.getFileSize());
-        dto.setDuration(song.getDuration());
-        dto.setMimeType(song.getMimeType());
-        return dto;
+    // Rows actually inserted; songs another change added (or deleted) in the meantime are skipped
+    private int addMembers(Long playlistId, List<Long> songIds) {
+        if (songIds.isEmpty()) {
+            return 0;
+        }
+        int added = 0;
+        for (int[] counts : jdbcTemplate.batchUpdate(ADD_MEMBER, songIds, batchSize, (ps, songId) -> {
+            ps.setLong(1, playlistId);
+            ps.setLong(2, songId);
+            ps.setLong(3, playlistId);
+        })) {
+            for (int count : counts) {
+                // Drivers that rewrite batches report SUCCESS_NO_INFO instead of a row count
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    private void writeMembers(String sql, Long playlistId, List<Long> songIds) {
+        if (!songIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, songIds, batchSize, (ps, songId) -> {
+                ps.setLong(1, playlistId);
+                ps.setLong(2, songId);
+            });
+        }
+    }
+
+    // Distinct ids in slices small enough for an IN list
+    private List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            chunks.add(distinct.subList(from, Math.min(from + batchSize, distinct.size())));
+        }
+        return chunks;
+    }
+
+    private static final class BuiltPlaylist {
+        private final Long id;
+        private final List<SongDTO> songs;
+
+        private BuiltPlaylist(Long id, List<SongDTO> songs) {
+            this.id = id;
+            this.songs = songs;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,285 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.BulkDeleteStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes every song that existed when the job started, on a background thread. Songs are
+ * taken in id order, a batch at a time: the batch's playlist entries and rows go with two
+ * range DELETEs in one transaction, then the files no song uses any more are deleted in
+ * parallel. A marker file in the upload directory holds the id cutoff and the files of the
+ * batch in flight, so a job cut short by a crash or restart is resumed at startup without
+ * leaving files behind. Songs uploaded after the start are above the cutoff and kept.
+ */
+@Component
+public class SongBulkDeleter {
+
+    private static final String MARKER_FILE = ".bulk-delete";
+    private static final String NO_HASH = "-";
+    private static final String SELECT_BATCH =
+            "SELECT id, content_hash, file_path FROM songs WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SongFileStore fileStore;
+
+    @Autowired
+    private SongCatalogCache catalogCache;
+
+    @Autowired
+    private SongSearchIndex searchIndex;
+
+    @Autowired
+    private SongSuggester suggester;
+
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+
+    @Value("${app.bulk-delete.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.bulk-delete.workers:4}")
+    private int workers;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile BulkDeleteStatus lastJob;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private volatile boolean resumed;
+    private volatile LocalDateTime startedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        Marker marker;
+        try {
+            marker = readMarker();
+        } catch (IOException e) {
+            System.err.println("Could not read bulk delete marker: " + e.getMessage());
+            return;
+        }
+        if (marker != null && running.compareAndSet(false, true)) {
+            System.out.println("Resuming bulk delete of songs up to id " + marker.cutoff);
+            launch(marker, true);
+        }
+    }
+
+    /**
+     * Starts deleting all songs unless a job is already running. Files left over from an
+     * interrupted job are cleaned up first.
+     */
+    public boolean start() throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Marker previous = readMarker();
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM songs", Long.class);
+            Marker marker = new Marker(maxId != null ? maxId : 0, previous != null ? previous.pending : List.of());
+            writeMarker(marker);
+            launch(marker, false);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    // Progress of the running job, else the outcome of the last one (null if none ran yet)
+    public BulkDeleteStatus getStatus() {
+        return running.get() ? snapshot(true, null) : lastJob;
+    }
+
+    private void launch(Marker marker, boolean resumedJob) {
+        total.set(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM songs WHERE id <= ?", Long.class, marker.cutoff));
+        deleted.set(0);
+        filesDeleted.set(0);
+        filesFailed.set(0);
+        resumed = resumedJob;
+        startedAt = LocalDateTime.now();
+
+        Thread thread = new Thread(() -> {
+            AtomicInteger threadCount = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread worker = new Thread(runnable, "song-bulk-delete-" + threadCount.incrementAndGet());
+                worker.setDaemon(true);
+                return worker;
+            });
+            try {
+                deleteFiles(pool, marker.pending);
+                deleteUpTo(pool, marker.cutoff);
+                Files.deleteIfExists(markerPath());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                // The marker stays, so the next start (or DELETE /songs/all) carries on from here
+                System.err.println("Bulk delete stopped: " + e.getMessage());
+            } finally {
+                pool.shutdownNow();
+                lastJob = snapshot(false, LocalDateTime.now());
+                running.set(false);
+                System.out.println("Bulk delete finished: " + deleted.get() + " songs, "
+                        + filesDeleted.get() + " files deleted, " + filesFailed.get() + " files failed");
+            }
+        }, "song-bulk-delete");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void deleteUpTo(ExecutorService pool, long cutoff) throws IOException, InterruptedException {
+        long lastId = 0;
+        while (true) {
+            List<SongFile> batch = jdbcTemplate.query(SELECT_BATCH,
+                    (rs, row) -> new SongFile(rs.getLong(1), rs.getString(2), rs.getString(3)),
+                    lastId, cutoff, batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            long from = lastId;
+            long to = batch.get(batch.size() - 1).id;
+
+            // Recorded before the rows go, so files of a committed batch are found again after a crash
+            writeMarker(new Marker(cutoff, batch));
+            Integer rows = transactionTemplate.execute(status -> {
+                // Join table first: playlist_songs references songs
+                jdbcTemplate.update("DELETE FROM playlist_songs WHERE song_id > ? AND song_id <= ?", from, to);
+                return jdbcTemplate.update("DELETE FROM songs WHERE id > ? AND id <= ?", from, to);
+            });
+            deleted.addAndGet(rows != null ? rows : 0);
+
+            List<Long> ids = new ArrayList<>(batch.size());
+            batch.forEach(song -> ids.add(song.id));
+            catalogCache.removeAll(ids);
+            ids.forEach(searchIndex::remove);
+            ids.forEach(suggester::remove);
+
+            deleteFiles(pool, batch);
+            lastId = to;
+        }
+    }
+
+    private void deleteFiles(ExecutorService pool, List<SongFile> files) throws InterruptedException {
+        // Songs with identical content share one file
+        Map<String, String> hashByPath = new LinkedHashMap<>();
+        for (SongFile file : files) {
+            if (file.path != null) {
+                hashByPath.putIfAbsent(file.path, file.hash);
+            }
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(hashByPath.size());
+        hashByPath.forEach((path, hash) -> tasks.add(() -> {
+            try {
+                if (fileStore.deleteIfOrphaned(hash, path)) {
+                    filesDeleted.incrementAndGet();
+                }
+            } catch (IOException e) {
+                filesFailed.incrementAndGet();
+                System.err.println("Failed to delete file: " + path + " - " + e.getMessage());
+            }
+            return null;
+        }));
+        pool.invokeAll(tasks);
+    }
+
+    private Path markerPath() {
+        return Paths.get(uploadDir).resolve(MARKER_FILE);
+    }
+
+    // First line the id cutoff, then "hash<TAB>path" for each file of the batch being deleted
+    private void writeMarker(Marker marker) throws IOException {
+        List<String> lines = new ArrayList<>(marker.pending.size() + 1);
+        lines.add(Long.toString(marker.cutoff));
+        for (SongFile file : marker.pending) {
+            if (file.path != null) {
+                lines.add((file.hash != null ? file.hash : NO_HASH) + "\t" + file.path);
+            }
+        }
+        Path target = markerPath();
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(MARKER_FILE + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Marker readMarker() throws IOException {
+        Path path = markerPath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        long cutoff;
+        try {
+            cutoff = Long.parseLong(lines.isEmpty() ? "" : lines.get(0).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring unreadable bulk delete marker " + path);
+            return null;
+        }
+        List<SongFile> pending = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                String hash = line.substring(0, tab);
+                pending.add(new SongFile(0, hash.equals(NO_HASH) ? null : hash, line.substring(tab + 1)));
+            }
+        }
+        return new Marker(cutoff, pending);
+    }
+
+    private BulkDeleteStatus snapshot(boolean isRunning, LocalDateTime finishedAt) {
+        return new BulkDeleteStatus(isRunning, resumed, total.get(), deleted.get(), filesDeleted.get(),
+                filesFailed.get(), startedAt, finishedAt);
+    }
+
+    private static final class SongFile {
+        private final long id;
+        private final String hash;
+        private final String path;
+
+        private SongFile(long id, String hash, String path) {
+            this.id = id;
+            this.hash = hash;
+            this.path = path;
+        }
+    }
+
+    private static final class Marker {
+        // Songs with an id up to this existed when the job was started
+        private final long cutoff;
+        private final List<SongFile> pending;
+
+        private Marker(long cutoff, List<SongFile> pending) {
+            this.cutoff = cutoff;
+            this.pending = pending;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.model.EmotionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, pre-built snapshots of the song catalog (all songs, per emotion, by id) and of
+ * each emotion's playlist. Readers only dereference a volatile snapshot; writers build a new
+ * one and swap it in (copy-on-write). Every write bumps a version so a reload that raced
+ * with it is discarded instead of overwriting newer data.
+ */
+@Component
+public class SongCatalogCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.catalog.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.catalog.cache.max-songs:50000}")
+    private int maxSongs;
+
+    private volatile Snapshot snapshot;
+    // Set when the catalog outgrew max-songs; reads go to the database until a refresh fits
+    private volatile boolean oversized;
+    private final Map<EmotionType, List<SongDTO>> playlists = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+
+    private Counter songHits;
+    private Counter songMisses;
+    private Counter playlistHits;
+    private Counter playlistMisses;
+
+    @PostConstruct
+    void init() {
+        songHits = requests("songs", "hit");
+        songMisses = requests("songs", "miss");
+        playlistHits = requests("playlists", "hit");
+        playlistMisses = requests("playlists", "miss");
+        Gauge.builder("app.catalog.cache.songs", this, cache -> {
+            Snapshot current = cache.snapshot;
+            return current != null ? current.all.size() : 0;
+        }).register(meterRegistry);
+        Gauge.builder("app.catalog.cache.hit-ratio", this, SongCatalogCache::getHitRatio).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Whether loading the whole catalog on a miss is worthwhile
+    public boolean isLoadable() {
+        return enabled && !oversized;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // When the version last changed; HTTP validators for catalog responses are built from both
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the current catalog snapshot, or {@code null} when it has to be loaded first.
+     */
+    public Snapshot current() {
+        Snapshot current = enabled ? snapshot : null;
+        (current != null ? songHits : songMisses).increment();
+        return current;
+    }
+
+    /**
+     * Installs a freshly loaded catalog (newest first) unless a write happened since
+     * {@code expectedVersion} was read.
+     */
+    public synchronized boolean replace(List<SongDTO> songsNewestFirst, long expectedVersion) {
+        if (!enabled || version.get() != expectedVersion) {
+            return false;
+        }
+        oversized = songsNewestFirst.size() > maxSongs;
+        if (oversized) {
+            System.out.println("Catalog has " + songsNewestFirst.size() + " songs, above the cache limit of " + maxSongs);
+            snapshot = null;
+            return false;
+        }
+        Snapshot current = snapshot;
+        if (current != null && sameSongs(current.all, songsNewestFirst)) {
+            // Nothing changed outside the API; keep the snapshot and the HTTP validators
+            return true;
+        }
+        snapshot = new Snapshot(songsNewestFirst);
+        // A reload may carry changes made outside the API
+        changed();
+        return true;
+    }
+
+    public synchronized void add(SongDTO song) {
+        changed();
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<SongDTO> songs = new ArrayList<>(current.all.size() + 1);
+        songs.add(song);
+        songs.addAll(current.all);
+        oversized = songs.size() > maxSongs;
+        snapshot = oversized ? null : new Snapshot(songs);
+    }
+
+    public synchronized void remove(Long songId) {
+        changed();
+        removeFromPlaylists(Set.of(songId));
+        Snapshot current = snapshot;
+        if (current == null || !current.byId.containsKey(songId)) {
+            return;
+        }
+        List<SongDTO> songs = new ArrayList<>(current.all);
+        songs.removeIf(song -> song.getId().equals(songId));
+        snapshot = new Snapshot(songs);
+    }
+
+    public synchronized void removeAll(Collection<Long> songIds) {
+        changed();
+        Set<Long> removed = new HashSet<>(songIds);
+        removeFromPlaylists(removed);
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<SongDTO> songs = new ArrayList<>(current.all);
+        if (songs.removeIf(song -> removed.contains(song.getId()))) {
+            snapshot = new Snapshot(songs);
+        }
+    }
+
+    // Swaps in a changed copy of a song, in the catalog and in the cached playlists listing it
+    public synchronized void update(SongDTO song) {
+        changed();
+        playlists.replaceAll((emotion, playlist) -> {
+            if (playlist.stream().noneMatch(existing -> existing.getId().equals(song.getId()))) {
+                return playlist;
+            }
+            List<SongDTO> songs = new ArrayList<>(playlist);
+            songs.replaceAll(existing -> existing.getId().equals(song.getId()) ? song : existing);
+            return List.copyOf(songs);
+        });
+        Snapshot current = snapshot;
+        if (current == null || !current.byId.containsKey(song.getId())) {
+            return;
+        }
+        List<SongDTO> songs = new ArrayList<>(current.all);
+        songs.replaceAll(existing -> existing.getId().equals(song.getId()) ? song : existing);
+        snapshot = new Snapshot(songs);
+    }
+
+    public synchronized void clear() {
+        changed();
+        playlists.clear();
+        snapshot = enabled ? new Snapshot(List.of()) : null;
+    }
+
+    public List<SongDTO> getPlaylist(EmotionType emotion) {
+        List<SongDTO> playlist = enabled ? playlists.get(emotion) : null;
+        (playlist != null ? playlistHits : playlistMisses).increment();
+        return playlist;
+    }
+
+    public synchronized List<SongDTO> putPlaylist(EmotionType emotion, List<SongDTO> songs, long expectedVersion) {
+        List<SongDTO> playlist = List.copyOf(songs);
+        if (enabled && version.get() == expectedVersion) {
+            playlists.put(emotion, playlist);
+        }
+        return playlist;
+    }
+
+    /**
+     * Applies membership changes to the cached playlists copy-on-write, with one version bump
+     * for all of them. Added songs are taken from the catalog snapshot; a playlist gaining a
+     * song the snapshot doesn't have yet is dropped instead.
+     */
+    public synchronized void changePlaylists(Map<EmotionType, Set<Long>> added, Map<EmotionType, Set<Long>> removed) {
+        changed();
+        patchPlaylists(added, removed);
+    }
+
+    public synchronized void invalidatePlaylist(EmotionType emotion) {
+        changed();
+        playlists.remove(emotion);
+    }
+
+    // A deleted song leaves every playlist, including ones it was added to by hand
+    private void removeFromPlaylists(Set<Long> songIds) {
+        Map<EmotionType, Set<Long>> removed = new EnumMap<>(EmotionType.class);
+        playlists.forEach((emotion, playlist) -> {
+            if (playlist.stream().anyMatch(song -> songIds.contains(song.getId()))) {
+                removed.put(emotion, songIds);
+            }
+        });
+        patchPlaylists(Map.of(), removed);
+    }
+
+    private void patchPlaylists(Map<EmotionType, Set<Long>> added, Map<EmotionType, Set<Long>> removed) {
+        Snapshot current = snapshot;
+        Set<EmotionType> emotions = EnumSet.noneOf(EmotionType.class);
+        emotions.addAll(added.keySet());
+        emotions.addAll(removed.keySet());
+        for (EmotionType emotion : emotions) {
+            List<SongDTO> playlist = playlists.get(emotion);
+            if (playlist == null) {
+                continue;
+            }
+            Set<Long> leaving = removed.getOrDefault(emotion, Set.of());
+            Set<Long> joining = new HashSet<>(added.getOrDefault(emotion, Set.of()));
+            List<SongDTO> songs = new ArrayList<>(playlist.size() + joining.size());
+            for (SongDTO song : playlist) {
+                if (!leaving.contains(song.getId())) {
+                    songs.add(song);
+                    joining.remove(song.getId());
+                }
+            }
+            boolean complete = true;
+            for (Long songId : joining) {
+                SongDTO song = current != null ? current.byId.get(songId) : null;
+                if (song == null) {
+                    complete = false;
+                    break;
+                }
+                songs.add(song);
+            }
+            if (complete) {
+                songs.sort(SongCursor.NEWEST_FIRST);
+                playlists.put(emotion, List.copyOf(songs));
+            } else {
+                playlists.remove(emotion);
+            }
+        }
+    }
+
+    private void changed() {
+        version.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    private static boolean sameSongs(List<SongDTO> cached, List<SongDTO> loaded) {
+        if (cached.size() != loaded.size()) {
+            return false;
+        }
+        for (int i = 0; i < cached.size(); i++) {
+            SongDTO a = cached.get(i);
+            SongDTO b = loaded.get(i);
+            if (!Objects.equals(a.getId(), b.getId())
+                    || !Objects.equals(a.getTitle(), b.getTitle())
+                    || !Objects.equals(a.getArtist(), b.getArtist())
+                    || a.getEmotionCategory() != b.getEmotionCategory()
+                    || !Objects.equals(a.getFilePath(), b.getFilePath())
+                    || !Objects.equals(a.getFileSize(), b.getFileSize())
+                    || !Objects.equals(a.getDuration(), b.getDuration())
+                    || !Objects.equals(a.getBitrate(), b.getBitrate())
+                    || !Objects.equals(a.getSampleRate(), b.getSampleRate())
+                    || !Objects.equals(a.getChannels(), b.getChannels())
+                    || !Objects.equals(a.getMimeType(), b.getMimeType())
+                    || !Objects.equals(a.getCreatedAt(), b.getCreatedAt())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Counter requests(String region, String result) {
+        return Counter.builder("app.catalog.cache.requests")
+                .tag("region", region).tag("result", result).register(meterRegistry);
+    }
+
+    private double getHitRatio() {
+        double hits = songHits.count() + playlistHits.count();
+        double total = hits + songMisses.count() + playlistMisses.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    public static final class Snapshot {
+        private final List<SongDTO> all;
+        private final Map<EmotionType, List<SongDTO>> byEmotion;
+        private final Map<Long, SongDTO> byId;
+        private final Map<EmotionType, long[]> idsByEmotion;
+
+        private Snapshot(List<SongDTO> songsNewestFirst) {
+            Map<EmotionType, List<SongDTO>> partitions = new EnumMap<>(EmotionType.class);
+            for (EmotionType emotion : EmotionType.values()) {
+                partitions.put(emotion, new ArrayList<>());
+            }
+            Map<Long, SongDTO> index = new HashMap<>(songsNewestFirst.size() * 2);
+            for (SongDTO song : songsNewestFirst) {
+                if (song.getEmotionCategory() != null) {
+                    partitions.get(song.getEmotionCategory()).add(song);
+                }
+                index.put(song.getId(), song);
+            }
+            partitions.replaceAll((emotion, songs) -> List.copyOf(songs));
+            Map<EmotionType, long[]> ids = new EnumMap<>(EmotionType.class);
+            partitions.forEach((emotion, songs) ->
+                    ids.put(emotion, songs.stream().mapToLong(SongDTO::getId).toArray()));
+
+            this.all = List.copyOf(songsNewestFirst);
+            this.byEmotion = Collections.unmodifiableMap(partitions);
+            this.byId = Collections.unmodifiableMap(index);
+            this.idsByEmotion = ids;
+        }
+
+        public List<SongDTO> getAll() {
+            return all;
+        }
+
+        public List<SongDTO> getByEmotion(EmotionType emotion) {
+            return byEmotion.get(emotion);
+        }
+
+        public SongDTO getById(Long id) {
+            return byId.get(id);
+        }
+
+        // Shared array, callers must not modify it
+        long[] getIdsByEmotion(EmotionType emotion) {
+            return idsByEmotion.get(emotion);
+        }
+    }
+}
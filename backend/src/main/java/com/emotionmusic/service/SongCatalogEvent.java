@@ -0,0 +1,46 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.model.EmotionType;
+
+/**
+ * Published after a song was created, deleted or moved to another emotion, once the change
+ * is in the database.
+ */
+public final class SongCatalogEvent {
+
+    public enum Type { CREATED, DELETED, RECATEGORIZED }
+
+    private final Type type;
+    private final Long songId;
+    private final EmotionType emotion;
+    private final EmotionType previousEmotion;
+
+    private SongCatalogEvent(Type type, Long songId, EmotionType emotion, EmotionType previousEmotion) {
+        this.type = type;
+        this.songId = songId;
+        this.emotion = emotion;
+        this.previousEmotion = previousEmotion;
+    }
+
+    public static SongCatalogEvent created(Long songId, EmotionType emotion) {
+        return new SongCatalogEvent(Type.CREATED, songId, emotion, null);
+    }
+
+    public static SongCatalogEvent deleted(Long songId, EmotionType emotion) {
+        return new SongCatalogEvent(Type.DELETED, songId, emotion, null);
+    }
+
+    public static SongCatalogEvent recategorized(Long songId, EmotionType previousEmotion, EmotionType emotion) {
+        return new SongCatalogEvent(Type.RECATEGORIZED, songId, emotion, previousEmotion);
+    }
+
+    public Type getType() { return type; }
+
+    public Long getSongId() { return songId; }
+
+    // The song's emotion after the change; for DELETED, the one it had
+    public EmotionType getEmotion() { return emotion; }
+
+    // Only set for RECATEGORIZED
+    public EmotionType getPreviousEmotion() { return previousEmotion; }
+}
@@ -0,0 +1,131 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.dto.SongPage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keyset position in the newest-first song order, i.e. {@code (created_at DESC, id DESC)}.
+ * Clients only ever see it as an opaque base64url token.
+ */
+public final class SongCursor {
+
+    // Sorts before every real row, so the first page uses the same keyset query
+    public static final SongCursor START = new SongCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    public static final Comparator<SongDTO> NEWEST_FIRST = Comparator.comparing(SongDTO::getCreatedAt)
+            .thenComparing(SongDTO::getId).reversed();
+
+    private static final String OFFSET_PREFIX = "offset:";
+
+    private final LocalDateTime createdAt;
+    private final long id;
+
+    private SongCursor(LocalDateTime createdAt, long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static SongCursor after(SongDTO song) {
+        return new SongCursor(song.getCreatedAt(), song.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static SongCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return START;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new SongCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Position in a ranked list, which has no keyset order: the number of results already
+     * returned. Empty means the start.
+     *
+     * @throws IllegalArgumentException if the token was not produced by {@link #encodeOffset(int)}
+     */
+    public static int decodeOffset(String token) {
+        if (token == null || token.isEmpty()) {
+            return 0;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!value.startsWith(OFFSET_PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int offset = Integer.parseInt(value.substring(OFFSET_PREFIX.length()));
+            if (offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return offset;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public static String encodeOffset(int offset) {
+        String value = OFFSET_PREFIX + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String encode() {
+        String value = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    // Whether the song comes after this position in newest-first order
+    public boolean precedes(SongDTO song) {
+        int byTime = song.getCreatedAt().compareTo(createdAt);
+        return byTime < 0 || (byTime == 0 && song.getId() < id);
+    }
+
+    /**
+     * Pages an in-memory list that is already sorted newest first. The page is a view of
+     * {@code songs}; finding the start is a binary search.
+     */
+    public SongPage page(List<SongDTO> songs, int limit) {
+        int low = 0;
+        int high = songs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (precedes(songs.get(mid))) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return toPage(songs.subList(low, Math.min(low + limit + 1, songs.size())), limit);
+    }
+
+    // Rows are fetched with limit + 1 so a following page is known to exist without counting
+    public static SongPage toPage(List<SongDTO> fetched, int limit) {
+        if (fetched.size() <= limit) {
+            return new SongPage(fetched, null);
+        }
+        List<SongDTO> items = fetched.subList(0, limit);
+        return new SongPage(items, after(items.get(limit - 1)).encode());
+    }
+}
@@ -0,0 +1,260 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.model.Song;
+import com.emotionmusic.repository.SongRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed song files. An upload is hashed (SHA-256) while it is copied to a
+ * staging file, then renamed to {@code <dir>/ab/cd/<hash>} unless that blob already
+ * exists, in which case the copy is dropped and the song points at the existing blob.
+ * The songs referencing a hash are its reference count; the blob is deleted with the last
+ * of them. Storing, releasing and deleting a hash hold the same lock, and a stored blob is
+ * pinned until its song is inserted, so a duplicate upload can't be pointed at a blob that
+ * is being deleted.
+ */
+@Component
+public class SongFileStore {
+
+    private static final String STAGING_DIR = ".staging";
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}");
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+    // Blobs handed out by put() whose songs may not be inserted yet, by hash
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+
+    private Counter storedBlobs;
+    private Counter duplicateBlobs;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        storedBlobs = Counter.builder("app.storage.uploads").tag("result", "stored").register(meterRegistry);
+        duplicateBlobs = Counter.builder("app.storage.uploads").tag("result", "duplicate").register(meterRegistry);
+    }
+
+    /**
+     * Stores {@code content} and saves {@code song} pointing at it; sets the file path, size
+     * and content hash on the song.
+     */
+    public Song save(Song song, InputStream content) throws IOException {
+        StoredFile file = put(content);
+        boolean saved = false;
+        try {
+            song.setFilePath(file.getPath().toString());
+            song.setFileSize(file.getSize());
+            song.setContentHash(file.getHash());
+            Song savedSong = songRepository.save(song);
+            saved = true;
+            return savedSong;
+        } finally {
+            release(file, saved);
+        }
+    }
+
+    /**
+     * Stores {@code content}, or finds the identical blob already stored. The blob stays
+     * pinned, i.e. safe from deletion even with no song pointing at it, until
+     * {@link #release(StoredFile, boolean)}; callers insert their rows in between.
+     */
+    public StoredFile put(InputStream content) throws IOException {
+        return put(content, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #put(InputStream)}, but stops copying once more than {@code maxBytes} were
+     * read, whatever size the source claimed.
+     *
+     * @throws FileTooLargeException if the content is longer than {@code maxBytes}
+     */
+    public StoredFile put(InputStream content, long maxBytes) throws IOException {
+        Path staging = Paths.get(uploadDir).resolve(STAGING_DIR);
+        Files.createDirectories(staging);
+        Path staged = staging.resolve(UUID.randomUUID().toString());
+
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = new DigestInputStream(content, digest);
+             OutputStream out = Files.newOutputStream(staged)) {
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new FileTooLargeException(maxBytes);
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path blob = blobPath(hash);
+
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            if (!Files.exists(blob)) {
+                Files.createDirectories(blob.getParent());
+                // Same file system as the staging directory, so this is a rename
+                Files.move(staged, blob, StandardCopyOption.ATOMIC_MOVE);
+                storedBlobs.increment();
+            } else {
+                Files.delete(staged);
+                duplicateBlobs.increment();
+            }
+            pins.merge(hash, 1, Integer::sum);
+            return new StoredFile(blob, hash, size);
+        } finally {
+            lock.unlock();
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    /**
+     * Unpins a blob from {@link #put(InputStream)}. Unless the caller's row was inserted, the
+     * blob is deleted if no other song references it either.
+     */
+    public void release(StoredFile file, boolean referenced) throws IOException {
+        ReentrantLock lock = lockFor(file.getHash());
+        lock.lock();
+        try {
+            pins.computeIfPresent(file.getHash(), (hash, count) -> count > 1 ? count - 1 : null);
+            if (!referenced) {
+                deleteIfUnreferenced(file.getHash(), file.getPath());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the song and, if no other song shares its file, the file.
+     */
+    public void delete(Song song) throws IOException {
+        Path file = Paths.get(song.getFilePath());
+        String hash = song.getContentHash();
+        if (hash == null) {
+            Files.deleteIfExists(file);
+            songRepository.delete(song);
+            return;
+        }
+
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            songRepository.delete(song);
+            deleteIfUnreferenced(hash, file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes a file whose songs were deleted by a bulk SQL delete, unless some song (or an
+     * upload in progress) still uses it. Returns whether the file was removed.
+     */
+    public boolean deleteIfOrphaned(String hash, String filePath) throws IOException {
+        Path file = Paths.get(filePath);
+        String blobHash = hash != null ? hash : hashOf(file);
+        if (blobHash == null) {
+            return !songRepository.existsByFilePath(filePath) && Files.deleteIfExists(file);
+        }
+        ReentrantLock lock = lockFor(blobHash);
+        lock.lock();
+        try {
+            return deleteIfUnreferenced(blobHash, file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the hash's lock
+    private boolean deleteIfUnreferenced(String hash, Path file) throws IOException {
+        return !pins.containsKey(hash) && songRepository.countByContentHash(hash) == 0 && Files.deleteIfExists(file);
+    }
+
+    // The SHA-256 a stored file is named by, or null for files saved before content addressing
+    public static String hashOf(Path file) {
+        Path name = file.getFileName();
+        return name != null && BLOB_NAME.matcher(name.toString()).matches() ? name.toString() : null;
+    }
+
+    // Two levels of 256 directories keep each directory small
+    private Path blobPath(String hash) {
+        return Paths.get(uploadDir, hash.substring(0, 2), hash.substring(2, 4), hash);
+    }
+
+    private ReentrantLock lockFor(String hash) {
+        return stripes[Integer.parseInt(hash.substring(0, 4), 16) % stripes.length];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static final class StoredFile {
+        private final Path path;
+        private final String hash;
+        private final long size;
+
+        private StoredFile(Path path, String hash, long size) {
+            this.path = path;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        public Path getPath() { return path; }
+
+        public String getHash() { return hash; }
+
+        public long getSize() { return size; }
+    }
+
+    public static class FileTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public FileTooLargeException(long maxBytes) {
+            super("File exceeds " + maxBytes + " bytes");
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.ImportFileResult;
+import com.emotionmusic.dto.ImportJobStatus;
+import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.repository.SongRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Bulk import of a server-side directory or a ZIP archive. Files are handled in batches:
+ * each batch is hashed into the file store, validated and parsed for metadata on a worker
+ * pool, then inserted with one JDBC batch. A file whose content, title and artist already
+ * exist is skipped, so re-running an import that failed part way picks up where it
+ * stopped. Title and artist come from "Artist - Title.mp3" names; a top-level folder named
+ * after an emotion sets the emotion.
+ */
+@Service
+public class SongImportService {
+
+    private static final String INSERT_SQL = "INSERT INTO songs (title, artist, file_path, emotion_category, "
+            + "file_size, duration, bitrate, sample_rate, channels, mime_type, content_hash, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UNKNOWN_ARTIST = "Unknown Artist";
+    private static final int MAX_TEXT = 255;
+
+    @Autowired
+    private SongFileStore fileStore;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private SongService songService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+
+    @Value("${app.import.directory-root:./imports}")
+    private String directoryRoot;
+
+    // 0 means one per core
+    @Value("${app.import.workers:0}")
+    private int workerCount;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.import.max-file-bytes:10485760}")
+    private long maxFileBytes;
+
+    @Value("${app.import.max-zip-bytes:2147483648}")
+    private long maxZipBytes;
+
+    @Value("${app.import.max-zip-entries:10000}")
+    private int maxZipEntries;
+
+    @Value("${app.import.max-zip-uncompressed-bytes:4294967296}")
+    private long maxZipUncompressedBytes;
+
+    @Value("${app.import.retained-jobs:20}")
+    private int retainedJobs;
+
+    private ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+            return size() > retainedJobs;
+        }
+    };
+
+    @PostConstruct
+    void init() {
+        int threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "song-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Imports every file below {@code directory}, which must lie inside the configured
+     * import root.
+     *
+     * @throws IllegalArgumentException if the directory is outside the root or missing
+     * @throws IllegalStateException if another import is running
+     */
+    public ImportJobStatus importDirectory(String directory, EmotionType defaultEmotion) throws IOException {
+        Path root = Paths.get(directoryRoot).toAbsolutePath().normalize();
+        Path source = root.resolve(directory).normalize();
+        if (!source.startsWith(root) || !Files.isDirectory(source)) {
+            throw new IllegalArgumentException("Not a directory below the import root: " + directory);
+        }
+        List<ImportFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(source)) {
+            paths.filter(Files::isRegularFile).sorted().forEach(path -> files.add(new ImportFile(
+                    source.relativize(path).toString().replace('\\', '/'), sizeOf(path),
+                    () -> Files.newInputStream(path))));
+        }
+        return start(source.toString(), files, Long.MAX_VALUE, defaultEmotion, null);
+    }
+
+    /**
+     * Imports the entries of a ZIP archive read from {@code body}. The archive is spooled to
+     * disk first so entries can be read in parallel.
+     *
+     * @throws IllegalArgumentException if the body is larger than the limit, not a ZIP, or
+     *         lists too many files or too many uncompressed bytes
+     * @throws IllegalStateException if another import is running
+     */
+    public ImportJobStatus importZip(InputStream body, EmotionType defaultEmotion) throws IOException {
+        Path staging = Paths.get(uploadDir).resolve(".staging");
+        Files.createDirectories(staging);
+        Path archive = staging.resolve("import-" + UUID.randomUUID() + ".zip");
+        ZipFile zip = null;
+        try {
+            spool(body, archive);
+            try {
+                zip = new ZipFile(archive.toFile());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Not a ZIP archive");
+            }
+            List<ImportFile> files = new ArrayList<>();
+            ZipFile opened = zip;
+            long declaredBytes = 0;
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    if (files.size() == maxZipEntries) {
+                        throw new IllegalArgumentException("Archive has more than " + maxZipEntries + " files");
+                    }
+                    // Sizes come from the archive itself; put() enforces the limits on what is read
+                    declaredBytes += entry.getSize() >= 0 ? entry.getSize() : maxFileBytes;
+                    if (declaredBytes > maxZipUncompressedBytes) {
+                        throw new IllegalArgumentException(
+                                "Archive expands to more than " + maxZipUncompressedBytes + " bytes");
+                    }
+                    files.add(new ImportFile(entry.getName(), entry.getSize(), () -> opened.getInputStream(entry)));
+                }
+            }
+            return start("zip", files, maxZipUncompressedBytes, defaultEmotion, () -> {
+                opened.close();
+                Files.deleteIfExists(archive);
+            });
+        } catch (IOException | RuntimeException e) {
+            if (zip != null) {
+                zip.close();
+            }
+            Files.deleteIfExists(archive);
+            throw e;
+        }
+    }
+
+    public ImportJobStatus getJob(String id) {
+        ImportJob job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        return job != null ? job.status() : null;
+    }
+
+    private ImportJobStatus start(String source, List<ImportFile> files, long maxBytes,
+                                  EmotionType defaultEmotion, Cleanup cleanup) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            if (cleanup != null) {
+                cleanup.run();
+            }
+            throw new IllegalStateException("Another import is running");
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), source, files.size(), maxBytes);
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+
+        Thread coordinator = new Thread(() -> {
+            try {
+                for (int from = 0; from < files.size(); from += batchSize) {
+                    importBatch(job, files.subList(from, Math.min(from + batchSize, files.size())), defaultEmotion);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                System.err.println("Import " + job.id + " stopped: " + e.getMessage());
+            } finally {
+                try {
+                    if (cleanup != null) {
+                        cleanup.run();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Import " + job.id + " cleanup failed: " + e.getMessage());
+                }
+                job.finish();
+                running.set(false);
+                // New rows went in behind the catalog snapshot and the search structures
+                songService.refreshCatalogCache();
+                ImportJobStatus status = job.status();
+                System.out.println("Import " + job.id + " finished: " + status.getImported() + " imported, "
+                        + status.getSkipped() + " skipped, " + status.getFailed() + " failed, "
+                        + String.format(Locale.ROOT, "%.1f", status.getFilesPerSecond()) + " files/s");
+            }
+        }, "song-import-job");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return job.status();
+    }
+
+    private void importBatch(ImportJob job, List<ImportFile> batch, EmotionType defaultEmotion)
+            throws InterruptedException {
+        List<Callable<Prepared>> tasks = new ArrayList<>(batch.size());
+        for (ImportFile file : batch) {
+            tasks.add(() -> prepare(job, file, defaultEmotion));
+        }
+        List<Prepared> ready = new ArrayList<>();
+        try {
+            for (Future<Prepared> future : workers.invokeAll(tasks)) {
+                Prepared prepared;
+                try {
+                    prepared = future.get();
+                } catch (ExecutionException e) {
+                    // prepare() reports its own failures; this is a bug, keep the job going
+                    job.record(new ImportFileResult("?", "failed", String.valueOf(e.getCause())));
+                    continue;
+                }
+                if (prepared.result != null) {
+                    job.record(prepared.result);
+                } else {
+                    ready.add(prepared);
+                }
+            }
+            if (!ready.isEmpty()) {
+                insert(job, ready);
+            }
+        } finally {
+            // Whatever stopped the batch, no blob stays pinned and every file gets a result
+            for (Prepared prepared : ready) {
+                if (!prepared.released) {
+                    release(prepared, false);
+                    job.record(new ImportFileResult(prepared.file.name, "failed",
+                            "Import stopped before the file was added; run the import again"));
+                }
+            }
+        }
+    }
+
+    private void insert(ImportJob job, List<Prepared> ready) {
+        // Resuming: the same content under the same title and artist is already there
+        Set<String> hashes = new HashSet<>();
+        ready.forEach(prepared -> hashes.add(prepared.stored.getHash()));
+        Set<String> existing = new HashSet<>(songRepository.findImportKeys(hashes));
+        List<Prepared> rows = new ArrayList<>(ready.size());
+        for (Prepared prepared : ready) {
+            if (existing.add(prepared.key())) {
+                rows.add(prepared);
+            } else {
+                release(prepared, true);
+                job.record(new ImportFileResult(prepared.file.name, "skipped", "Already imported"));
+            }
+        }
+
+        boolean inserted = false;
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        try {
+            Timestamp timestamp = Timestamp.valueOf(now);
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                AudioMetadata metadata = row.metadata;
+                ps.setString(1, row.title);
+                ps.setString(2, row.artist);
+                ps.setString(3, row.stored.getPath().toString());
+                ps.setString(4, row.emotion.name());
+                ps.setLong(5, row.stored.getSize());
+                if (metadata != null) {
+                    ps.setDouble(6, metadata.getDuration());
+                    ps.setInt(7, metadata.getBitrate());
+                    ps.setInt(8, metadata.getSampleRate());
+                    ps.setInt(9, metadata.getChannels());
+                } else {
+                    ps.setNull(6, Types.DOUBLE);
+                    ps.setNull(7, Types.INTEGER);
+                    ps.setNull(8, Types.INTEGER);
+                    ps.setNull(9, Types.INTEGER);
+                }
+                ps.setString(10, row.mimeType);
+                ps.setString(11, row.stored.getHash());
+                ps.setTimestamp(12, timestamp);
+                ps.setTimestamp(13, timestamp);
+            });
+            inserted = true;
+        } catch (DataAccessException e) {
+            System.err.println("Import " + job.id + " batch insert failed: " + e.getMessage());
+        }
+        for (Prepared row : rows) {
+            release(row, inserted);
+            job.record(inserted
+                    ? new ImportFileResult(row.file.name, "imported", null)
+                    : new ImportFileResult(row.file.name, "failed", "Database insert failed; run the import again"));
+        }
+
+        if (inserted) {
+            // Playlists of these emotions pick the new songs up without a rebuild. Seconds, as
+            // TIMESTAMP columns may not keep more; a song caught twice is just added once
+            Set<String> insertedHashes = new HashSet<>();
+            rows.forEach(row -> insertedHashes.add(row.stored.getHash()));
+            try {
+                songRepository.findCreatedSince(now.truncatedTo(ChronoUnit.SECONDS), insertedHashes)
+                        .forEach(song -> eventPublisher.publishEvent(
+                                SongCatalogEvent.created(song.getId(), song.getEmotionCategory())));
+            } catch (DataAccessException e) {
+                // The songs are in; their playlists catch up when next rebuilt
+                System.err.println("Import " + job.id + " could not announce new songs: " + e.getMessage());
+            }
+        }
+    }
+
+    // Runs on the worker pool: validate, store (hashing on the way) and read the headers
+    private Prepared prepare(ImportJob job, ImportFile file, EmotionType defaultEmotion) {
+        String mimeType = mimeType(file.name);
+        if (mimeType == null) {
+            return new Prepared(file, new ImportFileResult(file.name, "skipped", "Not an MP3 or WAV file"));
+        }
+        if (file.size > maxFileBytes) {
+            return new Prepared(file, new ImportFileResult(file.name, "failed",
+                    "File exceeds " + maxFileBytes + " bytes"));
+        }
+
+        // Workers share what is left of the job's byte budget, so it can be overrun by at most
+        // one file per worker
+        long remaining = job.maxBytes - job.bytesRead.get();
+        if (remaining <= 0) {
+            return new Prepared(file, new ImportFileResult(file.name, "failed",
+                    "Import exceeds " + job.maxBytes + " bytes"));
+        }
+        SongFileStore.StoredFile stored;
+        try (InputStream in = file.opener.call()) {
+            stored = fileStore.put(in, Math.min(maxFileBytes, remaining));
+        } catch (SongFileStore.FileTooLargeException e) {
+            String reason = remaining < maxFileBytes
+                    ? "Import exceeds " + job.maxBytes + " bytes"
+                    : "File exceeds " + maxFileBytes + " bytes";
+            return new Prepared(file, new ImportFileResult(file.name, "failed", reason));
+        } catch (Exception e) {
+            return new Prepared(file, new ImportFileResult(file.name, "failed", "Could not read file: " + e.getMessage()));
+        }
+        job.bytesRead.addAndGet(stored.getSize());
+
+        Prepared prepared = new Prepared(file, null);
+        prepared.stored = stored;
+        prepared.mimeType = mimeType;
+        prepared.emotion = emotionFromPath(file.name, defaultEmotion);
+        String[] parts = file.name.split("/");
+        String stem = parts[parts.length - 1];
+        stem = stem.substring(0, stem.lastIndexOf('.'));
+        int separator = stem.indexOf(" - ");
+        prepared.artist = truncate(separator > 0 ? stem.substring(0, separator).trim() : UNKNOWN_ARTIST);
+        prepared.title = truncate(separator > 0 ? stem.substring(separator + 3).trim() : stem.trim());
+        if (prepared.title.isEmpty()) {
+            release(prepared, false);
+            return new Prepared(file, new ImportFileResult(file.name, "failed", "No title in file name"));
+        }
+        try {
+            prepared.metadata = AudioMetadata.read(stored.getPath());
+        } catch (IOException e) {
+            // Imported without metadata; the metadata backfill can retry it
+            prepared.metadata = null;
+        }
+        return prepared;
+    }
+
+    private void release(Prepared prepared, boolean referenced) {
+        prepared.released = true;
+        try {
+            fileStore.release(prepared.stored, referenced);
+        } catch (IOException e) {
+            System.err.println("Could not release " + prepared.stored.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private static EmotionType emotionFromPath(String name, EmotionType defaultEmotion) {
+        int slash = name.indexOf('/');
+        if (slash > 0) {
+            String folder = name.substring(0, slash);
+            for (EmotionType emotion : EmotionType.values()) {
+                if (emotion.getValue().equalsIgnoreCase(folder)) {
+                    return emotion;
+                }
+            }
+        }
+        return defaultEmotion;
+    }
+
+    private void spool(InputStream body, Path archive) throws IOException {
+        try (InputStream in = body; OutputStream out = Files.newOutputStream(archive)) {
+            byte[] buffer = new byte[64 * 1024];
+            long written = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                written += read;
+                if (written > maxZipBytes) {
+                    throw new IllegalArgumentException("Archive exceeds " + maxZipBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static String mimeType(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".mp3")) {
+            return "audio/mpeg";
+        }
+        if (lower.endsWith(".wav")) {
+            return "audio/wav";
+        }
+        return null;
+    }
+
+    private static String truncate(String text) {
+        return text.length() > MAX_TEXT ? text.substring(0, MAX_TEXT) : text;
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private interface Cleanup {
+        void run() throws IOException;
+    }
+
+    private static final class ImportFile {
+        private final String name;
+        // As listed by the directory or archive, -1 when unknown
+        private final long size;
+        private final Callable<InputStream> opener;
+
+        private ImportFile(String name, long size, Callable<InputStream> opener) {
+            this.name = name;
+            this.size = size;
+            this.opener = opener;
+        }
+    }
+
+    private static final class Prepared {
+        private final ImportFile file;
+        // Set when the file won't be inserted
+        private final ImportFileResult result;
+        private SongFileStore.StoredFile stored;
+        private String mimeType;
+        private EmotionType emotion;
+        private String title;
+        private String artist;
+        private AudioMetadata metadata;
+        // The blob's pin from put() was given back
+        private boolean released;
+
+        private Prepared(ImportFile file, ImportFileResult result) {
+            this.file = file;
+            this.result = result;
+        }
+
+        private String key() {
+            return stored.getHash() + "|" + title + "|" + artist;
+        }
+    }
+
+    private static final class ImportJob {
+        private final String id;
+        private final String source;
+        private final long total;
+        // Uncompressed bytes the job may store, and how many it has so far
+        private final long maxBytes;
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startedNanos = System.nanoTime();
+        private final List<ImportFileResult> results = Collections.synchronizedList(new ArrayList<>());
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishedNanos;
+
+        private ImportJob(String id, String source, long total, long maxBytes) {
+            this.id = id;
+            this.source = source;
+            this.total = total;
+            this.maxBytes = maxBytes;
+        }
+
+        private void record(ImportFileResult result) {
+            results.add(result);
+        }
+
+        private void finish() {
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+        }
+
+        private ImportJobStatus status() {
+            List<ImportFileResult> copy;
+            synchronized (results) {
+                copy = new ArrayList<>(results);
+            }
+            long imported = copy.stream().filter(result -> result.getStatus().equals("imported")).count();
+            long skipped = copy.stream().filter(result -> result.getStatus().equals("skipped")).count();
+            long elapsed = (finishedAt != null ? finishedNanos : System.nanoTime()) - startedNanos;
+            double seconds = Duration.ofNanos(elapsed).toMillis() / 1000.0;
+
+            ImportJobStatus status = new ImportJobStatus();
+            status.setId(id);
+            status.setSource(source);
+            status.setRunning(finishedAt == null);
+            status.setTotal(total);
+            status.setImported(imported);
+            status.setSkipped(skipped);
+            status.setFailed(copy.size() - imported - skipped);
+            status.setFilesPerSecond(seconds > 0 ? copy.size() / seconds : 0.0);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setResults(copy);
+            return status;
+        }
+    }
+}
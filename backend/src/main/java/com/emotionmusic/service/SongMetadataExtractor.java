@@ -0,0 +1,214 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.MetadataBackfillStatus;
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.model.Song;
+import com.emotionmusic.repository.SongRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Fills in duration, bitrate, sample rate and channels after the upload response has been
+ * sent. Uploads queue one task on a small bounded pool; when it is full the song is left
+ * for the backfill job, which walks every song still missing a duration in id order and
+ * parses each batch in parallel.
+ */
+@Component
+public class SongMetadataExtractor {
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.metadata.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.metadata.workers:2}")
+    private int workers;
+
+    @Value("${app.metadata.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.metadata.backfill.workers:4}")
+    private int backfillWorkers;
+
+    @Value("${app.metadata.backfill.batch-size:200}")
+    private int backfillBatchSize;
+
+    private ThreadPoolExecutor executor;
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private volatile MetadataBackfillStatus lastBackfill;
+    private final AtomicLong backfillTotal = new AtomicLong();
+    private final AtomicLong backfillProcessed = new AtomicLong();
+    private final AtomicLong backfillFailed = new AtomicLong();
+    private volatile LocalDateTime backfillStartedAt;
+
+    private Counter extracted;
+    private Counter failed;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "song-metadata-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        extracted = Counter.builder("app.metadata.songs").tag("result", "extracted").register(meterRegistry);
+        failed = Counter.builder("app.metadata.songs").tag("result", "failed").register(meterRegistry);
+        rejected = Counter.builder("app.metadata.songs").tag("result", "rejected")
+                .description("Uploads not queued because the extractor was saturated; the backfill picks them up")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Extracts in the background and hands the updated song to {@code onUpdated}; nothing
+     * happens if the song was deleted meanwhile or its file can't be parsed.
+     */
+    public void submit(SongDTO song, Consumer<SongDTO> onUpdated) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                AudioMetadata metadata = extract(song.getId(), song.getFilePath());
+                if (metadata != null) {
+                    onUpdated.accept(withMetadata(song, metadata));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Starts a backfill on its own threads unless one is already running. {@code onFinished}
+     * runs once the job is done, so callers can reload anything holding the old rows.
+     */
+    public boolean startBackfill(Runnable onFinished) {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        backfillTotal.set(songRepository.countWithoutDuration());
+        backfillProcessed.set(0);
+        backfillFailed.set(0);
+        backfillStartedAt = LocalDateTime.now();
+
+        Thread thread = new Thread(() -> {
+            try {
+                backfill();
+                onFinished.run();
+            } catch (RuntimeException e) {
+                System.err.println("Metadata backfill stopped: " + e.getMessage());
+            } finally {
+                lastBackfill = snapshot(false, LocalDateTime.now());
+                backfillRunning.set(false);
+                System.out.println("Metadata backfill finished: " + backfillProcessed.get() + " songs, "
+                        + backfillFailed.get() + " failed");
+            }
+        }, "song-metadata-backfill");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    // Progress of the running job, else the outcome of the last one (null if none ran yet)
+    public MetadataBackfillStatus getBackfillStatus() {
+        return backfillRunning.get() ? snapshot(true, null) : lastBackfill;
+    }
+
+    private void backfill() {
+        ExecutorService pool = Executors.newFixedThreadPool(backfillWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "song-metadata-backfill-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = songRepository.findIdsWithoutDurationAfter(lastId,
+                        PageRequest.of(0, backfillBatchSize));
+                if (ids.isEmpty()) {
+                    return;
+                }
+                lastId = ids.get(ids.size() - 1);
+
+                List<Callable<AudioMetadata>> tasks = new ArrayList<>(ids.size());
+                for (Song song : songRepository.findAllById(ids)) {
+                    tasks.add(() -> {
+                        AudioMetadata metadata = extract(song.getId(), song.getFilePath());
+                        backfillProcessed.incrementAndGet();
+                        if (metadata == null) {
+                            backfillFailed.incrementAndGet();
+                        }
+                        return metadata;
+                    });
+                }
+                // Songs deleted since the id query are simply not found
+                backfillProcessed.addAndGet(ids.size() - tasks.size());
+                pool.invokeAll(tasks);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // The stored metadata, or null if the file couldn't be parsed or the song is gone
+    private AudioMetadata extract(Long songId, String filePath) {
+        AudioMetadata metadata = null;
+        try {
+            metadata = AudioMetadata.read(Paths.get(filePath));
+        } catch (IOException e) {
+            System.err.println("Could not read metadata of song " + songId + ": " + e.getMessage());
+        }
+        boolean stored = metadata != null && songRepository.updateAudioMetadata(songId, metadata.getDuration(),
+                metadata.getBitrate(), metadata.getSampleRate(), metadata.getChannels()) > 0;
+        (metadata != null ? extracted : failed).increment();
+        return stored ? metadata : null;
+    }
+
+    private MetadataBackfillStatus snapshot(boolean running, LocalDateTime finishedAt) {
+        return new MetadataBackfillStatus(running, backfillTotal.get(), backfillProcessed.get(),
+                backfillFailed.get(), backfillStartedAt, finishedAt);
+    }
+
+    private static SongDTO withMetadata(SongDTO song, AudioMetadata metadata) {
+        return new SongDTO(song.getId(), song.getTitle(), song.getArtist(), song.getEmotionCategory(),
+                song.getFilePath(), song.getFileSize(), metadata.getDuration(), metadata.getBitrate(),
+                metadata.getSampleRate(), metadata.getChannels(), song.getMimeType(), song.getCreatedAt());
+    }
+}
@@ -0,0 +1,97 @@
+package com.emotionmusic.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks random song ids without sorting the whole category. A partial Fisher-Yates shuffle
+ * over a virtual copy of the id array (only swapped slots are materialised) costs O(k) for
+ * k picks. With a session id, songs handed to that session recently are skipped.
+ */
+@Component
+public class SongSampler {
+
+    @Value("${app.songs.random.no-repeat-window:20}")
+    private int noRepeatWindow;
+
+    @Value("${app.songs.random.max-sessions:10000}")
+    private int maxSessions;
+
+    private final Map<String, LinkedHashSet<Long>> recentBySession = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LinkedHashSet<Long>> eldest) {
+            return size() > maxSessions;
+        }
+    };
+
+    public List<Long> sample(long[] ids, int count, String sessionId) {
+        int n = ids.length;
+        count = Math.min(count, n);
+        if (count <= 0) {
+            return List.of();
+        }
+
+        LinkedHashSet<Long> recent = null;
+        if (sessionId != null && noRepeatWindow > 0) {
+            synchronized (recentBySession) {
+                LinkedHashSet<Long> stored = recentBySession.get(sessionId);
+                recent = stored != null ? new LinkedHashSet<>(stored) : null;
+            }
+        }
+
+        List<Long> picked = new ArrayList<>(count);
+        List<Long> skipped = new ArrayList<>();
+        // Slot overrides for the virtual array; slot i is never read again after step i
+        Map<Integer, Long> swapped = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < n && picked.size() < count; i++) {
+            int j = i + random.nextInt(n - i);
+            long chosen = swapped.getOrDefault(j, ids[j]);
+            if (j != i) {
+                swapped.put(j, swapped.getOrDefault(i, ids[i]));
+            }
+            swapped.remove(i);
+
+            if (recent != null && recent.contains(chosen)) {
+                if (skipped.size() < count) {
+                    skipped.add(chosen);
+                }
+                continue;
+            }
+            picked.add(chosen);
+        }
+        // Not enough fresh songs: repeat recently played ones rather than return fewer
+        for (Iterator<Long> it = skipped.iterator(); picked.size() < count && it.hasNext(); ) {
+            picked.add(it.next());
+        }
+
+        if (sessionId != null && noRepeatWindow > 0) {
+            remember(sessionId, picked);
+        }
+        return picked;
+    }
+
+    private void remember(String sessionId, List<Long> picked) {
+        synchronized (recentBySession) {
+            LinkedHashSet<Long> recent = recentBySession.computeIfAbsent(sessionId, id -> new LinkedHashSet<>());
+            for (Long id : picked) {
+                recent.remove(id);
+                recent.add(id);
+            }
+            Iterator<Long> oldest = recent.iterator();
+            while (recent.size() > noRepeatWindow) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.repository.SongRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over normalized title and artist tokens. Whole tokens are kept in
+ * a sorted map for exact and prefix matches; trigrams of every token answer substring
+ * queries. Every query token must match the title or artist; results are ranked by how
+ * strongly they match (exact over prefix over substring, title over artist), newest first
+ * on ties. Query tokens shorter than a trigram match by prefix only.
+ */
+@Component
+public class SongSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedSong> songs = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> tokens = new TreeMap<>();
+    private final Map<String, Set<Long>> grams = new HashMap<>();
+    private long version;
+    private volatile boolean ready;
+
+    private Timer searchTimer;
+
+    @PostConstruct
+    void init() {
+        searchTimer = Timer.builder("app.search.index.latency").register(meterRegistry);
+        Gauge.builder("app.search.index.songs", this, SongSearchIndex::size).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long expected = version();
+        if (rebuild(songRepository.findAllNewestFirst(), expected)) {
+            System.out.println("Song search index built with " + size() + " songs in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        }
+    }
+
+    // Searches fall back to the database until the first build has finished
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public long version() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index unless a song was added or removed since
+     * {@code expectedVersion} was read.
+     */
+    public boolean rebuild(List<SongDTO> allSongs, long expectedVersion) {
+        if (!enabled) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (version != expectedVersion) {
+                return false;
+            }
+            songs.clear();
+            tokens.clear();
+            grams.clear();
+            allSongs.forEach(this::index);
+            ready = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(SongDTO song) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            version++;
+            unindex(song.getId());
+            index(song);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long songId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            version++;
+            unindex(songId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            version++;
+            songs.clear();
+            tokens.clear();
+            grams.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Results ranked offset to offset + limit; the ranking is stable while the catalog doesn't change
+    public List<SongDTO> search(String query, int offset, int limit) {
+        return searchTimer.record(() -> {
+            List<String> queryTokens = tokenize(query);
+            if (queryTokens.isEmpty()) {
+                return List.<SongDTO>of();
+            }
+
+            lock.readLock().lock();
+            try {
+                Map<Long, Integer> scores = null;
+                for (String token : queryTokens) {
+                    Map<Long, Integer> tokenScores = scoreToken(token);
+                    if (scores == null) {
+                        scores = tokenScores;
+                    } else {
+                        // Every query token has to match
+                        scores.keySet().retainAll(tokenScores.keySet());
+                        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                            entry.setValue(entry.getValue() + tokenScores.get(entry.getKey()));
+                        }
+                    }
+                    if (scores.isEmpty()) {
+                        return List.<SongDTO>of();
+                    }
+                }
+
+                Map<Long, Integer> finalScores = scores;
+                return finalScores.keySet().stream()
+                        .map(songs::get)
+                        .sorted(Comparator.<IndexedSong>comparingInt(song -> finalScores.get(song.dto.getId()))
+                                .reversed()
+                                .thenComparing(song -> song.dto, SongCursor.NEWEST_FIRST))
+                        .skip(offset)
+                        .limit(limit)
+                        .map(song -> song.dto)
+                        .toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return songs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best score of one query token for every song it matches
+    private Map<Long, Integer> scoreToken(String token) {
+        Set<Long> candidates = new HashSet<>();
+        // Whole tokens starting with the query token: exact and prefix matches
+        for (Set<Long> ids : tokens.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+            candidates.addAll(ids);
+        }
+        // Tokens containing it somewhere else: every trigram of the query token must be present
+        if (token.length() >= GRAM) {
+            Set<Long> containing = null;
+            for (String gram : grams(token)) {
+                Set<Long> ids = grams.getOrDefault(gram, Set.of());
+                if (containing == null) {
+                    containing = new HashSet<>(ids);
+                } else {
+                    containing.retainAll(ids);
+                }
+                if (containing.isEmpty()) {
+                    break;
+                }
+            }
+            candidates.addAll(containing);
+        }
+
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Long id : candidates) {
+            IndexedSong song = songs.get(id);
+            int score = Math.max(score(song.titleTokens, token, 4), score(song.artistTokens, token, 3));
+            // Trigram hits can be false positives; a score of 0 means the token is not really there
+            if (score > 0) {
+                scores.put(id, score);
+            }
+        }
+        return scores;
+    }
+
+    // exact = weight, prefix = weight - 1, substring = weight - 2
+    private static int score(List<String> fieldTokens, String token, int weight) {
+        int best = 0;
+        for (String fieldToken : fieldTokens) {
+            if (fieldToken.equals(token)) {
+                return weight;
+            }
+            if (fieldToken.startsWith(token)) {
+                best = Math.max(best, weight - 1);
+            } else if (fieldToken.contains(token)) {
+                best = Math.max(best, weight - 2);
+            }
+        }
+        return best;
+    }
+
+    private void index(SongDTO song) {
+        IndexedSong indexed = new IndexedSong(song, tokenize(song.getTitle()), tokenize(song.getArtist()));
+        songs.put(song.getId(), indexed);
+        for (String token : indexed.allTokens()) {
+            tokens.computeIfAbsent(token, key -> new HashSet<>()).add(song.getId());
+            for (String gram : grams(token)) {
+                grams.computeIfAbsent(gram, key -> new HashSet<>()).add(song.getId());
+            }
+        }
+    }
+
+    private void unindex(Long songId) {
+        IndexedSong indexed = songs.remove(songId);
+        if (indexed == null) {
+            return;
+        }
+        for (String token : indexed.allTokens()) {
+            removePosting(tokens, token, songId);
+            for (String gram : grams(token)) {
+                removePosting(grams, gram, songId);
+            }
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Long>> postings, String key, Long songId) {
+        Set<Long> ids = postings.get(key);
+        if (ids != null && ids.remove(songId) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>();
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    // Lower case without diacritics, so "Beyoncé" and "beyonce" compare equal
+    static String fold(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String token) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            result.add(token.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static final class IndexedSong {
+        private final SongDTO dto;
+        private final List<String> titleTokens;
+        private final List<String> artistTokens;
+
+        private IndexedSong(SongDTO dto, List<String> titleTokens, List<String> artistTokens) {
+            this.dto = dto;
+            this.titleTokens = titleTokens;
+            this.artistTokens = artistTokens;
+        }
+
+        private Set<String> allTokens() {
+            Set<String> all = new HashSet<>(titleTokens);
+            all.addAll(artistTokens);
+            return all;
+        }
+    }
+}
@@ -1,25 +1,31 @@
 package com.emotionmusic.service;
 
+import com.emotionmusic.dto.BulkDeleteStatus;
+import com.emotionmusic.dto.MetadataBackfillStatus;
 import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.dto.SongPage;
+import com.emotionmusic.dto.SongSuggestion;
 import com.emotionmusic.model.EmotionType;
 import com.emotionmusic.model.Song;
+import com.emotionmusic.repository.PlaylistRepository;
 import com.emotionmusic.repository.SongRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,33 +34,116 @@ public class SongService {
     @Autowired
     private SongRepository songRepository;
 
-    @Value("${app.upload.dir}")
-    private String uploadDir;
+    @Autowired
+    private SongCatalogCache catalogCache;
 
-    public List<SongDTO> getAllSongs() {
-        return songRepository.findAllOrderByCreatedAtDesc()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Autowired
+    private SongSampler songSampler;
+
+    @Autowired
+    private SongFileStore fileStore;
+
+    @Autowired
+    private SongMetadataExtractor metadataExtractor;
+
+    @Autowired
+    private SongSearchIndex searchIndex;
+
+    @Autowired
+    private SongSuggester suggester;
+
+    @Autowired
+    private SongBulkDeleter bulkDeleter;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public SongPage getSongs(SongCursor after, int limit) {
+        SongCatalogCache.Snapshot catalog = catalogCache.current();
+        if (catalog != null) {
+            return after.page(catalog.getAll(), limit);
+        }
+        if (catalogCache.isLoadable()) {
+            return after.page(loadCatalog(), limit);
+        }
+        return SongCursor.toPage(songRepository.findPageBefore(
+                after.getCreatedAt(), after.getId(), PageRequest.of(0, limit + 1)), limit);
     }
 
-    public List<SongDTO> getSongsByEmotion(EmotionType emotion) {
-        return songRepository.findByEmotionCategory(emotion)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public SongPage getSongsByEmotion(EmotionType emotion, SongCursor after, int limit) {
+        SongCatalogCache.Snapshot catalog = catalogCache.current();
+        if (catalog != null) {
+            return after.page(catalog.getByEmotion(emotion), limit);
+        }
+        if (catalogCache.isLoadable()) {
+            return after.page(loadCatalog().stream()
+                    .filter(song -> song.getEmotionCategory() == emotion)
+                    .collect(Collectors.toList()), limit);
+        }
+        return SongCursor.toPage(songRepository.findPageByEmotionBefore(
+                emotion, after.getCreatedAt(), after.getId(), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    // Picks up changes made outside this service (e.g. directly in the database)
+    @Scheduled(fixedDelayString = "${app.catalog.cache.refresh-interval-ms:300000}",
+            initialDelayString = "${app.catalog.cache.refresh-interval-ms:300000}")
+    public void refreshCatalogCache() {
+        if (catalogCache.isEnabled() || searchIndex.isReady() || suggester.isReady()) {
+            long indexVersion = searchIndex.version();
+            long suggesterVersion = suggester.version();
+            List<SongDTO> songs = loadCatalog();
+            searchIndex.rebuild(songs, indexVersion);
+            suggester.rebuild(songs, suggesterVersion);
+        }
+    }
+
+    private List<SongDTO> loadCatalog() {
+        long version = catalogCache.version();
+        List<SongDTO> songs = songRepository.findAllNewestFirst();
+        catalogCache.replace(songs, version);
+        return songs;
     }
 
-    public List<SongDTO> getRandomSongsByEmotion(EmotionType emotion) {
-        return songRepository.findRandomSongsByEmotion(emotion)
+    public List<SongDTO> getRandomSongsByEmotion(EmotionType emotion, int count, String sessionId) {
+        SongCatalogCache.Snapshot catalog = catalogCache.current();
+        if (catalog == null && catalogCache.isLoadable()) {
+            loadCatalog();
+            catalog = catalogCache.current();
+        }
+        if (catalog != null) {
+            return songSampler.sample(catalog.getIdsByEmotion(emotion), count, sessionId)
+                    .stream()
+                    .map(catalog::getById)
+                    .collect(Collectors.toList());
+        }
+
+        // Without the cache only the ids are read; just the picked rows are loaded
+        long[] ids = songRepository.findIdsByEmotionCategory(emotion)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        List<Long> picked = songSampler.sample(ids, count, sessionId);
+        Map<Long, Song> songs = songRepository.findAllById(picked)
                 .stream()
+                .collect(Collectors.toMap(Song::getId, song -> song));
+        return picked.stream()
+                .map(songs::get)
+                .filter(Objects::nonNull)
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
     public Optional<SongDTO> getSongById(Long id) {
-        return songRepository.findById(id)
-                .map(this::convertToDTO);
+        SongCatalogCache.Snapshot catalog = catalogCache.current();
+        SongDTO cached = catalog != null ? catalog.getById(id) : null;
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // Rows written behind the snapshot (imports, other instances) reach it only on reload
+        return songRepository.findDtoById(id);
     }
 
     public SongDTO uploadSong(MultipartFile file, String title, String artist, EmotionType emotionCategory) throws IOException {
@@ -72,33 +161,44 @@ public class SongService {
             throw new IllegalArgumentException("Only MP3 and WAV files are supported");
         }
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Generate unique filename
-        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-        
-        // Save file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
         // Create song entity
         Song song = new Song();
         song.setTitle(title);
         song.setArtist(artist);
-        song.setFilePath(filePath.toString());
         song.setEmotionCategory(emotionCategory);
-        song.setFileSize(file.getSize());
         song.setMimeType(contentType);
 
-        // Save to database
-        Song savedSong = songRepository.save(song);
-        return convertToDTO(savedSong);
+        // Store the file (shared with identical uploads) and save to database
+        Song savedSong = fileStore.save(song, file.getInputStream());
+        SongDTO savedDTO = convertToDTO(savedSong);
+        catalogCache.add(savedDTO);
+        searchIndex.add(savedDTO);
+        suggester.add(savedDTO);
+        eventPublisher.publishEvent(SongCatalogEvent.created(savedDTO.getId(), emotionCategory));
+        // Duration and friends are filled in after the response is sent
+        metadataExtractor.submit(savedDTO, this::applyMetadata);
+        return savedDTO;
+    }
+
+    /**
+     * Moves a song to another emotion. Its playlist entries follow shortly after, via
+     * {@link PlaylistMaterializer}.
+     */
+    public Optional<SongDTO> updateEmotion(Long id, EmotionType emotion) {
+        Optional<SongDTO> current = songRepository.findDtoById(id);
+        if (current.isEmpty() || current.get().getEmotionCategory() == emotion) {
+            return current;
+        }
+        if (songRepository.updateEmotionCategory(id, emotion, LocalDateTime.now()) == 0) {
+            return Optional.empty();
+        }
+        Optional<SongDTO> updated = songRepository.findDtoById(id);
+        updated.ifPresent(song -> {
+            catalogCache.update(song);
+            searchIndex.add(song);
+            eventPublisher.publishEvent(SongCatalogEvent.recategorized(id, current.get().getEmotionCategory(), emotion));
+        });
+        return updated;
     }
 
     public Resource loadSongAsResource(Long songId) throws IOException {
@@ -125,53 +225,69 @@ public class SongService {
         }
 
         Song song = songOpt.get();
-        
-        // Delete file from filesystem
-        Path filePath = Paths.get(song.getFilePath());
-        if (Files.exists(filePath)) {
-            Files.delete(filePath);
-        }
-
-        // Delete from database
-        songRepository.delete(song);
-    }
-
-    public void deleteAllSongs() throws IOException {
-        List<Song> allSongs = songRepository.findAll();
-        System.out.println("Found " + allSongs.size() + " songs to delete");
-        
-        // Delete all files from filesystem
-        for (Song song : allSongs) {
-            Path filePath = Paths.get(song.getFilePath());
-            if (Files.exists(filePath)) {
-                try {
-                    Files.delete(filePath);
-                    System.out.println("Deleted file: " + song.getFilePath());
-                } catch (IOException e) {
-                    // Log the error but continue with other files
-                    System.err.println("Failed to delete file: " + song.getFilePath() + " - " + e.getMessage());
-                }
-            } else {
-                System.out.println("File not found: " + song.getFilePath());
+        // Playlist entries first (playlist_songs references songs), then the row, and the file
+        // once no other song shares it
+        playlistRepository.deleteMemberships(id);
+        fileStore.delete(song);
+        catalogCache.remove(id);
+        searchIndex.remove(id);
+        suggester.remove(id);
+        eventPublisher.publishEvent(SongCatalogEvent.deleted(id, song.getEmotionCategory()));
+    }
+
+    // Deletes in the background; false if a bulk delete is already running
+    public boolean deleteAllSongs() throws IOException {
+        return bulkDeleter.start();
+    }
+
+    public BulkDeleteStatus getDeleteAllStatus() {
+        return bulkDeleter.getStatus();
+    }
+
+    private void applyMetadata(SongDTO song) {
+        catalogCache.update(song);
+        searchIndex.add(song);
+    }
+
+    public boolean startMetadataBackfill() {
+        return metadataExtractor.startBackfill(() -> {
+            for (EmotionType emotion : EmotionType.values()) {
+                catalogCache.invalidatePlaylist(emotion);
             }
+            refreshCatalogCache();
+        });
+    }
+
+    public MetadataBackfillStatus getMetadataBackfillStatus() {
+        return metadataExtractor.getBackfillStatus();
+    }
+
+    /**
+     * Ranked results from the in-memory index, paged by rank offset; the keyset query is the
+     * fallback until the index is built. A cursor only works on the path that issued it.
+     */
+    public SongPage searchSongs(String query, String cursor, int limit) {
+        if (searchIndex.isReady()) {
+            int offset = SongCursor.decodeOffset(cursor);
+            List<SongDTO> ranked = searchIndex.search(query, offset, limit + 1);
+            if (ranked.size() <= limit) {
+                return new SongPage(ranked, null);
+            }
+            return new SongPage(ranked.subList(0, limit), SongCursor.encodeOffset(offset + limit));
         }
-        
-        // Clear playlist_songs junction table first to avoid foreign key constraint issues
-        // This is handled automatically by the foreign key CASCADE, but we'll be explicit
-        System.out.println("Deleting all songs from database...");
-        songRepository.deleteAll();
-        System.out.println("All songs deleted from database");
-    }
-
-    public List<SongDTO> searchSongs(String query) {
-        List<Song> titleResults = songRepository.findByTitleContainingIgnoreCase(query);
-        List<Song> artistResults = songRepository.findByArtistContainingIgnoreCase(query);
-        
-        // Combine and deduplicate results
-        titleResults.addAll(artistResults);
-        return titleResults.stream()
-                .distinct()
-                .map(this::convertToDTO)
+        SongCursor after = SongCursor.decode(cursor);
+        return SongCursor.toPage(songRepository.searchPageBefore(
+                query, after.getCreatedAt(), after.getId(), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    // Until the trie is built, matching titles from the search path stand in
+    public List<SongSuggestion> suggest(String prefix, int limit) {
+        if (suggester.isReady()) {
+            return suggester.suggest(prefix, limit);
+        }
+        return searchSongs(prefix, null, limit).getItems()
+                .stream()
+                .map(song -> new SongSuggestion(song.getTitle(), "title", song.getId()))
                 .collect(Collectors.toList());
     }
 
@@ -184,7 +300,11 @@ public class SongService {
         dto.setFilePath(song.getFilePath());
         dto.setFileSize(song.getFileSize());
         dto.setDuration(song.getDuration());
+        dto.setBitrate(song.getBitrate());
+        dto.setSampleRate(song.getSampleRate());
+        dto.setChannels(song.getChannels());
         dto.setMimeType(song.getMimeType());
+        dto.setCreatedAt(song.getCreatedAt());
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.SongDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+public class SongStreamingService {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String CRLF = "\r\n";
+
+    @Value("${app.streaming.sendfile-enabled:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${app.streaming.max-ranges:16}")
+    private int maxRanges;
+
+    @Value("${app.http.cache-control.audio:public, max-age=86400}")
+    private String cacheControl;
+
+    public void serve(SongDTO song, boolean attachment, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path file = Paths.get(song.getFilePath());
+        if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+            throw new IOException("Could not read file: " + song.getFilePath());
+        }
+
+        long length = Files.size(file);
+        // HTTP dates have second precision, so drop the millis before comparing validators
+        long lastModified = Files.getLastModifiedTime(file).toMillis() / 1000 * 1000;
+        // Content-addressed files are named by their SHA-256, older uploads fall back to size and mtime
+        String hash = SongFileStore.hashOf(file);
+        String etag = "\"" + (hash != null ? hash : Long.toHexString(length) + "-" + Long.toHexString(lastModified)) + "\"";
+        String contentType = song.getMimeType() != null ? song.getMimeType() : "application/octet-stream";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        // Sets ETag and Last-Modified; a 304 (or 412 for a failed If-Match) ends the request here
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                attachment ? "attachment; filename=\"" + song.getTitle() + "\"" : "inline");
+
+        List<long[]> regions = null;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            try {
+                regions = resolveRanges(HttpRange.parseRanges(rangeHeader), length);
+            } catch (IllegalArgumentException e) {
+                // Malformed or oversized Range headers are ignored and the full file is sent
+                regions = null;
+            }
+            if (regions != null && regions.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setContentLength(0);
+                return;
+            }
+        }
+
+        boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (regions == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                transfer(file, 0, length, request, response);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!headOnly) {
+                transfer(file, start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (long[] region : regions) {
+            byte[] header = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + region[0] + "-" + region[1] + "/" + length + CRLF
+                    + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + (region[1] - region[0] + 1);
+        }
+        byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += trailer.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < regions.size(); i++) {
+                long[] region = regions.get(i);
+                out.write(partHeaders.get(i));
+                transferFully(channel, region[0], region[1] - region[0] + 1, target);
+            }
+        }
+        out.write(trailer);
+        out.flush();
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            // If-Range requires a strong comparison
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return since == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Returns sorted, merged, inclusive regions; null means ignore the Range header,
+    // an empty list means nothing is satisfiable
+    private List<long[]> resolveRanges(List<HttpRange> ranges, long length) {
+        if (ranges.isEmpty() || ranges.size() > maxRanges) {
+            return null;
+        }
+
+        List<long[]> regions = new ArrayList<>(ranges.size());
+        for (HttpRange range : ranges) {
+            try {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                if (start <= end) {
+                    regions.add(new long[]{start, end});
+                }
+            } catch (IllegalArgumentException e) {
+                // Unsatisfiable range, skip it
+            }
+        }
+        if (regions.size() <= 1) {
+            return regions;
+        }
+
+        // Coalesce overlapping or adjacent ranges so clients cannot amplify reads
+        regions.sort(Comparator.comparingLong(region -> region[0]));
+        List<long[]> merged = new ArrayList<>(regions.size());
+        long[] current = regions.get(0);
+        for (int i = 1; i < regions.size(); i++) {
+            long[] next = regions.get(i);
+            if (next[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], next[1]);
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    private void transfer(Path file, long start, long count, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (count == 0) {
+            return;
+        }
+
+        if (sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // The container writes the file with sendfile(2) once the handler returns
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transferFully(channel, start, count, Channels.newChannel(out));
+        }
+        out.flush();
+    }
+
+    private void transferFully(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long written = channel.transferTo(position, remaining, target);
+            if (written <= 0) {
+                throw new IOException("File truncated while streaming");
+            }
+            position += written;
+            remaining -= written;
+        }
+    }
+}
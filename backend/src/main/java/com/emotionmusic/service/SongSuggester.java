@@ -0,0 +1,507 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.dto.SongSuggestion;
+import com.emotionmusic.repository.SongRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead over titles and artists. Keys are the normalized text and every suffix of it
+ * that starts at a word, stored in a radix tree (edges carry whole label strings, children
+ * are sorted arrays). Each node keeps its subtree's best {@code top-k} entries, so a lookup
+ * is a walk down the prefix and a copy of one small array. Artists rank by how many songs
+ * they have; otherwise shorter, then newer, first.
+ */
+@Component
+public class SongSuggester {
+
+    // Word suffixes indexed per title or artist, bounds the keys a long title can add
+    private static final int MAX_KEYS_PER_TEXT = 6;
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private static final Comparator<Entry> RANK = Comparator.<Entry>comparingInt(entry -> entry.weight).reversed()
+            .thenComparingInt(entry -> entry.text.length())
+            .thenComparing(entry -> entry.songId != null ? entry.songId : 0L, Comparator.reverseOrder())
+            .thenComparing(entry -> entry.text);
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.search.suggest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.suggest.top-k:10}")
+    private int topK;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node("");
+    private final Map<Long, Entry> titles = new HashMap<>();
+    private final Map<String, Entry> artists = new HashMap<>();
+    // Normalized artist of every indexed song, null when the song has none
+    private final Map<Long, String> artistOf = new HashMap<>();
+    private long version;
+    private volatile boolean ready;
+
+    private Timer suggestTimer;
+
+    @PostConstruct
+    void init() {
+        suggestTimer = Timer.builder("app.search.suggest.latency").register(meterRegistry);
+        Gauge.builder("app.search.suggest.bytes-per-song", this, SongSuggester::bytesPerSong)
+                .description("Estimated trie footprint divided by the number of indexed songs")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long expected = version();
+        if (rebuild(songRepository.findAllNewestFirst(), expected)) {
+            System.out.println("Song suggestion trie built for " + artistOf.size() + " songs in "
+                    + (System.currentTimeMillis() - started) + " ms, about "
+                    + Math.round(bytesPerSong()) + " bytes per song");
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public long version() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole trie unless a song was added or removed since
+     * {@code expectedVersion} was read.
+     */
+    public boolean rebuild(List<SongDTO> allSongs, long expectedVersion) {
+        if (!enabled) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (version != expectedVersion) {
+                return false;
+            }
+            reset();
+            allSongs.forEach(this::index);
+            ready = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(SongDTO song) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            version++;
+            unindex(song.getId());
+            index(song);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long songId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            version++;
+            unindex(songId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            version++;
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // At most top-k suggestions; limit is capped there
+    public List<SongSuggestion> suggest(String prefix, int limit) {
+        return suggestTimer.record(() -> {
+            String key = normalize(prefix);
+            if (key.isEmpty()) {
+                return List.<SongSuggestion>of();
+            }
+
+            lock.readLock().lock();
+            try {
+                Node node = find(key);
+                if (node == null) {
+                    return List.<SongSuggestion>of();
+                }
+                List<SongSuggestion> result = new ArrayList<>(Math.min(limit, node.top.length));
+                for (int i = 0; i < node.top.length && i < limit; i++) {
+                    Entry entry = node.top[i];
+                    result.add(new SongSuggestion(entry.text, entry.songId != null ? "title" : "artist", entry.songId));
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private void reset() {
+        root = new Node("");
+        titles.clear();
+        artists.clear();
+        artistOf.clear();
+    }
+
+    private void index(SongDTO song) {
+        Entry title = new Entry(song.getTitle(), song.getId(), 1);
+        if (!normalize(song.getTitle()).isEmpty()) {
+            titles.put(song.getId(), title);
+            insert(title);
+        }
+
+        String artistKey = normalize(song.getArtist());
+        if (artistKey.isEmpty()) {
+            artistOf.put(song.getId(), null);
+            return;
+        }
+        artistOf.put(song.getId(), artistKey);
+        Entry artist = new Entry(song.getArtist(), null, 1);
+        Entry existing = artists.get(artistKey);
+        if (existing != null) {
+            // The weight is part of the ranking, so the entry is replaced rather than updated
+            delete(existing);
+            artist = existing.withWeight(existing.weight + 1);
+        }
+        artists.put(artistKey, artist);
+        insert(artist);
+    }
+
+    private void unindex(Long songId) {
+        Entry title = titles.remove(songId);
+        if (title != null) {
+            delete(title);
+        }
+        String artistKey = artistOf.remove(songId);
+        Entry artist = artistKey != null ? artists.get(artistKey) : null;
+        if (artist == null) {
+            return;
+        }
+        delete(artist);
+        if (artist.weight > 1) {
+            Entry remaining = artist.withWeight(artist.weight - 1);
+            artists.put(artistKey, remaining);
+            insert(remaining);
+        } else {
+            artists.remove(artistKey);
+        }
+    }
+
+    private void insert(Entry entry) {
+        for (String key : entry.keys()) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int pos = 0;
+            while (pos < key.length()) {
+                int slot = Arrays.binarySearch(node.firsts, key.charAt(pos));
+                if (slot < 0) {
+                    Node leaf = new Node(key.substring(pos));
+                    addChild(node, -slot - 1, leaf);
+                    node = leaf;
+                    path.add(node);
+                    break;
+                }
+                Node child = node.children[slot];
+                int common = commonPrefix(child.label, key, pos);
+                if (common < child.label.length()) {
+                    // Split the edge at the point where the key diverges
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.firsts = new char[] {child.label.charAt(0)};
+                    middle.children = new Node[] {child};
+                    middle.top = child.top;
+                    node.children[slot] = middle;
+                    child = middle;
+                }
+                node = child;
+                path.add(node);
+                pos += common;
+            }
+            node.terminals = append(node.terminals, entry);
+            for (Node onPath : path) {
+                onPath.top = offer(onPath.top, entry);
+            }
+        }
+    }
+
+    private void delete(Entry entry) {
+        for (String key : entry.keys()) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int pos = 0;
+            while (pos < key.length()) {
+                int slot = Arrays.binarySearch(node.firsts, key.charAt(pos));
+                if (slot < 0 || !key.startsWith(node.children[slot].label, pos)) {
+                    break;
+                }
+                node = node.children[slot];
+                pos += node.label.length();
+                path.add(node);
+            }
+            if (pos < key.length()) {
+                continue;
+            }
+            node.terminals = without(node.terminals, entry);
+
+            // Bottom up: drop empty leaves, fold pass-through nodes into their child, re-rank the rest
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node current = path.get(i);
+                Node parent = i > 0 ? path.get(i - 1) : null;
+                if (parent != null && current.terminals.length == 0 && current.children.length == 0) {
+                    removeChild(parent, current);
+                } else if (parent != null && current.terminals.length == 0 && current.children.length == 1) {
+                    Node only = current.children[0];
+                    only.label = current.label + only.label;
+                    parent.children[Arrays.binarySearch(parent.firsts, only.label.charAt(0))] = only;
+                } else {
+                    current.top = rank(current);
+                }
+            }
+        }
+    }
+
+    private Node find(String key) {
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int slot = Arrays.binarySearch(node.firsts, key.charAt(pos));
+            if (slot < 0) {
+                return null;
+            }
+            Node child = node.children[slot];
+            int common = commonPrefix(child.label, key, pos);
+            if (pos + common == key.length()) {
+                // The prefix ends on or inside this edge
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            pos += common;
+        }
+        return node;
+    }
+
+    private Entry[] offer(Entry[] top, Entry entry) {
+        int at = 0;
+        while (at < top.length && top[at] != entry && RANK.compare(top[at], entry) < 0) {
+            at++;
+        }
+        if (at >= topK || (at < top.length && top[at] == entry)) {
+            return top;
+        }
+        Entry[] result = new Entry[Math.min(topK, top.length + 1)];
+        System.arraycopy(top, 0, result, 0, at);
+        result[at] = entry;
+        System.arraycopy(top, at, result, at + 1, result.length - at - 1);
+        return result;
+    }
+
+    // Children already hold their subtree's best entries, so only those need merging
+    private Entry[] rank(Node node) {
+        List<Entry> candidates = new ArrayList<>(Arrays.asList(node.terminals));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        return candidates.stream()
+                .distinct()
+                .sorted(RANK)
+                .limit(topK)
+                .toArray(Entry[]::new);
+    }
+
+    private static void addChild(Node parent, int at, Node child) {
+        int n = parent.children.length;
+        char[] firsts = new char[n + 1];
+        Node[] children = new Node[n + 1];
+        System.arraycopy(parent.firsts, 0, firsts, 0, at);
+        System.arraycopy(parent.children, 0, children, 0, at);
+        firsts[at] = child.label.charAt(0);
+        children[at] = child;
+        System.arraycopy(parent.firsts, at, firsts, at + 1, n - at);
+        System.arraycopy(parent.children, at, children, at + 1, n - at);
+        parent.firsts = firsts;
+        parent.children = children;
+    }
+
+    private static void removeChild(Node parent, Node child) {
+        int at = Arrays.binarySearch(parent.firsts, child.label.charAt(0));
+        int n = parent.children.length;
+        if (n == 1) {
+            parent.firsts = NO_CHARS;
+            parent.children = NO_NODES;
+            return;
+        }
+        char[] firsts = new char[n - 1];
+        Node[] children = new Node[n - 1];
+        System.arraycopy(parent.firsts, 0, firsts, 0, at);
+        System.arraycopy(parent.children, 0, children, 0, at);
+        System.arraycopy(parent.firsts, at + 1, firsts, at, n - at - 1);
+        System.arraycopy(parent.children, at + 1, children, at, n - at - 1);
+        parent.firsts = firsts;
+        parent.children = children;
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        Entry[] result = Arrays.copyOf(entries, entries.length + 1);
+        result[entries.length] = entry;
+        return result;
+    }
+
+    private static Entry[] without(Entry[] entries, Entry entry) {
+        Entry[] result = Arrays.stream(entries).filter(e -> e != entry).toArray(Entry[]::new);
+        return result.length == 0 ? NO_ENTRIES : result;
+    }
+
+    private static int commonPrefix(String label, String key, int pos) {
+        int max = Math.min(label.length(), key.length() - pos);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // Same folding and word splitting as the search index, words joined by single spaces
+    static String normalize(String text) {
+        return String.join(" ", SongSearchIndex.tokenize(text));
+    }
+
+    /**
+     * Rough heap footprint with compressed oops: object headers, arrays and Latin-1 label
+     * strings. Entry text is shared with the catalog DTOs and not counted.
+     */
+    private double bytesPerSong() {
+        lock.readLock().lock();
+        try {
+            if (artistOf.isEmpty()) {
+                return 0.0;
+            }
+            long bytes = 0;
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                bytes += 32 + 24 + array(node.label.length())
+                        + array(node.firsts.length * 2) + array(node.children.length * 4)
+                        + array(node.terminals.length * 4) + array(node.top.length * 4);
+                for (Node child : node.children) {
+                    pending.push(child);
+                }
+            }
+            bytes += (titles.size() + artists.size()) * 24L;
+            // HashMap nodes and boxed ids of titles and artistOf
+            bytes += artistOf.size() * 96L;
+            return (double) bytes / artistOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long array(int payload) {
+        return payload == 0 ? 0 : (16 + payload + 7) & ~7L;
+    }
+
+    private static final class Node {
+        private String label;
+        private char[] firsts = NO_CHARS;
+        private Node[] children = NO_NODES;
+        // Entries whose key ends exactly here
+        private Entry[] terminals = NO_ENTRIES;
+        // Best entries anywhere in this subtree, already ranked
+        private Entry[] top = NO_ENTRIES;
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Entry {
+        private final String text;
+        private final Long songId;
+        private final int weight;
+
+        private Entry(String text, Long songId, int weight) {
+            this.text = text;
+            this.songId = songId;
+            this.weight = weight;
+        }
+
+        private Entry withWeight(int weight) {
+            return new Entry(text, songId, weight);
+        }
+
+        // Recomputed when needed rather than kept, the trie labels already hold the characters
+        private String[] keys() {
+            List<String> words = SongSearchIndex.tokenize(text);
+            int count = Math.min(words.size(), MAX_KEYS_PER_TEXT);
+            String[] keys = new String[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = String.join(" ", words.subList(i, words.size()));
+            }
+            return keys;
+        }
+    }
+}
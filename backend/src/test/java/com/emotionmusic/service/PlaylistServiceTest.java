@@ -0,0 +1,138 @@
+package com.emotionmusic.service;
+
+import com.emotionmusic.dto.SongDTO;
+import com.emotionmusic.model.EmotionType;
+import com.emotionmusic.repository.PlaylistRepository;
+import com.emotionmusic.repository.SongRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PlaylistServiceTest {
+
+    private static final int CALLERS = 16;
+
+    @Mock
+    private PlaylistRepository playlistRepository;
+
+    @Mock
+    private SongRepository songRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private PlaylistService playlistService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    // Whether the playlist row exists in the (mocked) database
+    private final AtomicBoolean created = new AtomicBoolean();
+    private final List<SongDTO> happySongs = List.of(song(2L, "Second"), song(1L, "First"));
+
+    @BeforeEach
+    void setUp() {
+        SongCatalogCache catalogCache = new SongCatalogCache();
+        ReflectionTestUtils.setField(catalogCache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(catalogCache, "enabled", true);
+        ReflectionTestUtils.setField(catalogCache, "maxSongs", 50000);
+        catalogCache.init();
+        ReflectionTestUtils.setField(playlistService, "catalogCache", catalogCache);
+        ReflectionTestUtils.setField(playlistService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(playlistService, "batchSize", 500);
+
+        when(playlistRepository.existsByEmotion(EmotionType.HAPPY)).thenAnswer(invocation -> created.get());
+        when(playlistRepository.findSongs(EmotionType.HAPPY))
+                .thenAnswer(invocation -> created.get() ? happySongs : List.of());
+        when(playlistRepository.findIdByEmotion(EmotionType.HAPPY))
+                .thenAnswer(invocation -> created.get() ? Optional.of(7L) : Optional.empty());
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(jdbcTemplate.update(eq(insertPlaylistSql()), any(Object[].class))).thenAnswer(invocation -> {
+            // Hold the build open so the other callers pile up behind it
+            Thread.sleep(100);
+            created.set(true);
+            return 1;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentFirstRequestsBuildThePlaylistOnce() throws Exception {
+        CountDownLatch ready = new CountDownLatch(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<SongDTO>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            Callable<List<SongDTO>> call = i % 2 == 0
+                    ? () -> playlistService.createPlaylistForEmotion(EmotionType.HAPPY)
+                    : () -> playlistService.getPlaylistByEmotion(EmotionType.HAPPY);
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                return call.call();
+            }));
+        }
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        start.countDown();
+
+        for (Future<List<SongDTO>> result : results) {
+            assertEquals(List.of(2L, 1L), ids(result.get(5, TimeUnit.SECONDS)));
+        }
+        verify(jdbcTemplate, times(1)).update(eq(insertPlaylistSql()), any(Object[].class));
+        assertEquals(1.0, meterRegistry.counter("app.playlists.builds", "emotion", "HAPPY").count());
+    }
+
+    private static String insertPlaylistSql() {
+        return (String) ReflectionTestUtils.getField(PlaylistService.class, "INSERT_PLAYLIST");
+    }
+
+    private static List<Long> ids(List<SongDTO> songs) {
+        return songs.stream().map(SongDTO::getId).collect(Collectors.toList());
+    }
+
+    private static SongDTO song(Long id, String title) {
+        SongDTO song = new SongDTO(title, "Artist", EmotionType.HAPPY);
+        song.setId(id);
+        return song;
+    }
+}
@@ -5,6 +5,9 @@ import numpy as np
 from PIL import Image
 import io
 import logging
+import os
+import threading
+from concurrent.futures import ThreadPoolExecutor
 
 app = Flask(__name__)
 CORS(app)
@@ -16,6 +19,8 @@ logger = logging.getLogger(__name__)
 # Try to import DeepFace, fallback to simulation if not available
 try:
     from deepface import DeepFace
+    from deepface.commons import functions
+    import cv2
     DEEPFACE_AVAILABLE = True
     logger.info("DeepFace library loaded successfully")
 except ImportError:
@@ -23,6 +28,26 @@ except ImportError:
     logger.warning("DeepFace library not available, using simulation mode")
     import random
 
+EMOTION_LABELS = ['angry', 'disgust', 'fear', 'happy', 'sad', 'surprise', 'neutral']
+
+# Decoding and face detection for batches run here; OpenCV and PIL release the GIL
+BATCH_WORKERS = int(os.environ.get('BATCH_WORKERS', '4'))
+batch_executor = ThreadPoolExecutor(max_workers=BATCH_WORKERS)
+# One emotion-model call per batch instead of DeepFace.analyze per frame. It calls into
+# deepface internals (pinned 0.0.79), so it is opt-in until verified against a deployment
+BATCH_MODEL_INFERENCE = os.environ.get('BATCH_MODEL_INFERENCE', 'false').lower() == 'true'
+
+_emotion_model = None
+_emotion_model_lock = threading.Lock()
+
+def emotion_model():
+    """The Keras emotion model DeepFace.analyze uses, loaded once"""
+    global _emotion_model
+    with _emotion_model_lock:
+        if _emotion_model is None:
+            _emotion_model = DeepFace.build_model('Emotion')
+        return _emotion_model
+
 def simulate_emotion_detection():
     """Simulate emotion detection for demo purposes"""
     emotions = ['angry', 'disgust', 'fear', 'happy', 'sad', 'surprise', 'neutral']
@@ -46,6 +71,91 @@ def simulate_emotion_detection():
         'region': {'x': 0, 'y': 0, 'w': 224, 'h': 224}
     }
 
+def decode_image(img_data):
+    """Decode a base64 (or data URL) image into an RGB numpy array"""
+    # Handle data URL format (data:image/jpeg;base64,...)
+    if ',' in img_data:
+        img_data = img_data.split(',')[1]
+
+    return load_image(base64.b64decode(img_data))
+
+def load_image(img_bytes):
+    """Load raw encoded image bytes into an RGB numpy array"""
+    img = Image.open(io.BytesIO(img_bytes))
+
+    # Convert to RGB if necessary
+    if img.mode != 'RGB':
+        img = img.convert('RGB')
+
+    return np.array(img)
+
+def analyze_image(img_array):
+    """Run emotion analysis on a decoded image, falling back to simulation"""
+    if DEEPFACE_AVAILABLE:
+        try:
+            result = DeepFace.analyze(
+                img_array,
+                actions=['emotion'],
+                enforce_detection=False,
+                silent=True
+            )
+
+            # Handle both single result and list of results
+            if isinstance(result, list):
+                result = result[0]
+
+            return result
+        except Exception as e:
+            logger.error(f"DeepFace analysis failed: {str(e)}")
+
+    return simulate_emotion_detection()
+
+def extract_face(img_array):
+    """First face as the 48x48 grayscale input of the emotion model, plus its region"""
+    faces = functions.extract_faces(
+        img=img_array,
+        target_size=(224, 224),
+        detector_backend='opencv',
+        grayscale=False,
+        enforce_detection=False,
+        align=True
+    )
+    img_content, region, _ = faces[0]
+    gray = cv2.cvtColor(img_content[0], cv2.COLOR_BGR2GRAY)
+    return cv2.resize(gray, (48, 48)), region
+
+def analyze_images(img_arrays):
+    """Emotion analysis for several decoded images.
+
+    By default each image goes through analyze_image on the worker pool. With
+    BATCH_MODEL_INFERENCE, faces are extracted on the pool and all of them go through the
+    emotion model as a single batch, which is where the time goes; if that fails, the
+    per-image path is used. Results have the shape of analyze_image's.
+    """
+    if not img_arrays:
+        return []
+    if not DEEPFACE_AVAILABLE:
+        return [simulate_emotion_detection() for _ in img_arrays]
+    if not BATCH_MODEL_INFERENCE:
+        return list(batch_executor.map(analyze_image, img_arrays))
+    try:
+        faces = list(batch_executor.map(extract_face, img_arrays))
+        batch = np.stack([face for face, _ in faces])[..., np.newaxis]
+        predictions = emotion_model().predict(batch, verbose=0)
+        results = []
+        for (_, region), scores in zip(faces, predictions):
+            total = float(scores.sum())
+            emotion = {label: 100 * float(scores[i]) / total for i, label in enumerate(EMOTION_LABELS)}
+            results.append({
+                'emotion': emotion,
+                'dominant_emotion': EMOTION_LABELS[int(np.argmax(scores))],
+                'region': {key: int(value) for key, value in region.items()}
+            })
+        return results
+    except Exception as e:
+        logger.error(f"Batched DeepFace analysis failed, analyzing frames one by one: {str(e)}")
+        return list(batch_executor.map(analyze_image, img_arrays))
+
 @app.route('/health', methods=['GET'])
 def health_check():
     """Health check endpoint"""
@@ -57,60 +167,24 @@ def health_check():
 
 @app.route('/analyze', methods=['POST'])
 def analyze_emotion():
-    """Analyze emotion from base64 encoded image"""
+    """Analyze emotion from a base64 JSON payload or a raw image body"""
     try:
-        data = request.json
-        if not data or 'img' not in data:
+        raw_body = request.mimetype.startswith('image/') or request.mimetype == 'application/octet-stream'
+        data = None if raw_body else request.get_json(silent=True)
+        if raw_body and not request.content_length:
             return jsonify({'error': 'No image data provided'}), 400
-        
-        img_data = data['img']
-        
-        # Handle data URL format (data:image/jpeg;base64,...)
-        if ',' in img_data:
-            img_data = img_data.split(',')[1]
-        
-        # Decode base64 image
+        if not raw_body and (not data or 'img' not in data):
+            return jsonify({'error': 'No image data provided'}), 400
+
         try:
-            img_bytes = base64.b64decode(img_data)
-            img = Image.open(io.BytesIO(img_bytes))
-            
-            # Convert to RGB if necessary
-            if img.mode != 'RGB':
-                img = img.convert('RGB')
-            
-            # Convert to numpy array
-            img_array = np.array(img)
-            
+            img_array = load_image(request.get_data()) if raw_body else decode_image(data['img'])
         except Exception as e:
             logger.error(f"Error processing image: {str(e)}")
             return jsonify({'error': 'Invalid image data'}), 400
-        
-        # Perform emotion analysis
-        if DEEPFACE_AVAILABLE:
-            try:
-                # Use DeepFace for real emotion detection
-                result = DeepFace.analyze(
-                    img_array, 
-                    actions=['emotion'], 
-                    enforce_detection=False,
-                    silent=True
-                )
-                
-                # Handle both single result and list of results
-                if isinstance(result, list):
-                    result = result[0]
-                
-                logger.info(f"DeepFace analysis completed successfully")
-                
-            except Exception as e:
-                logger.error(f"DeepFace analysis failed: {str(e)}")
-                # Fallback to simulation
-                result = simulate_emotion_detection()
-        else:
-            # Use simulation
-            result = simulate_emotion_detection()
-            logger.info("Using simulated emotion detection")
-        
+
+        result = analyze_image(img_array)
+        logger.info("Emotion analysis completed")
+
         # Format response to match expected structure
         response = {
             'results': {
@@ -124,13 +198,51 @@ def analyze_emotion():
         logger.error(f"Unexpected error in analyze_emotion: {str(e)}")
         return jsonify({'error': 'Internal server error'}), 500
 
+@app.route('/analyze_batch', methods=['POST'])
+def analyze_emotion_batch():
+    """Analyze several frames in one request.
+
+    Request:  multipart/form-data with one raw image part per frame, named by its id
+              (a JSON body {"items": [{"id": "0", "img": "<base64>"}, ...]} is also accepted)
+    Response: {"results": {"0": {...analysis...}, "1": {"error": "..."}}}
+    """
+    try:
+        if request.files:
+            frames = [(item_id, lambda f=f: load_image(f.read())) for item_id, f in request.files.items()]
+        else:
+            data = request.get_json(silent=True)
+            if not data or not isinstance(data.get('items'), list):
+                return jsonify({'error': 'No items provided'}), 400
+            frames = [(str(item.get('id')), lambda item=item: decode_image(item['img'])) for item in data['items']]
+
+        results = {}
+        ids = []
+        img_arrays = []
+        for item_id, load in frames:
+            try:
+                img_arrays.append(load())
+                ids.append(item_id)
+            except Exception as e:
+                logger.error(f"Error processing image {item_id}: {str(e)}")
+                results[item_id] = {'error': 'Invalid image data'}
+
+        for item_id, result in zip(ids, analyze_images(img_arrays)):
+            results[item_id] = result
+
+        logger.info(f"Batch analysis completed for {len(results)} frames")
+        return jsonify({'results': results})
+
+    except Exception as e:
+        logger.error(f"Unexpected error in analyze_emotion_batch: {str(e)}")
+        return jsonify({'error': 'Internal server error'}), 500
+
 @app.route('/test', methods=['GET'])
 def test_endpoint():
     """Test endpoint to verify service is working"""
     return jsonify({
         'message': 'DeepFace emotion detection service is running',
         'deepface_available': DEEPFACE_AVAILABLE,
-        'endpoints': ['/health', '/analyze', '/test']
+        'endpoints': ['/health', '/analyze', '/analyze_batch', '/test']
     })
 
 if __name__ == '__main__':
@@ -243,8 +243,13 @@ function App() {
     if (isConnected) {
       try {
         console.log('🗑️ Deleting all songs from backend...');
-        await fetch('/api/songs/all', { method: 'DELETE' });
-        console.log('✅ Backend songs deleted');
+        // The delete runs in the background; wait for it before touching local state
+        let status = await apiService.deleteAllSongs();
+        while (status.running) {
+          await new Promise(resolve => setTimeout(resolve, 1000));
+          status = await apiService.getDeleteAllStatus();
+        }
+        console.log('✅ Backend songs deleted:', status.deleted, 'of', status.total, '-', status.filesFailed, 'files failed');
         
         // Clear localStorage first
         window.localStorage.removeItem('emotion-music-songs');
@@ -269,7 +274,9 @@ function App() {
         setSongs(backendSongs);
         
         // Show notification
-        setRecommendationNotification('🗑️ All songs deleted successfully!');
+        setRecommendationNotification(status.filesFailed === 0
+          ? '🗑️ All songs deleted successfully!'
+          : `⚠️ Songs deleted, but ${status.filesFailed} files could not be removed`);
         setTimeout(() => setRecommendationNotification(null), 3000);
         
       } catch (error) {
@@ -11,6 +11,7 @@ export const useRealEmotionDetection = (isActive: boolean) => {
   const streamRef = useRef<MediaStream | null>(null);
   const intervalRef = useRef<NodeJS.Timeout | null>(null);
   const sessionId = useRef<string>(Math.random().toString(36).substr(2, 9));
+  const socketRef = useRef<WebSocket | null>(null);
 
   const { detectEmotion, isConnected } = useBackendIntegration();
 
@@ -41,14 +42,14 @@ export const useRealEmotionDetection = (isActive: boolean) => {
     }
   };
 
-  const captureFrame = useCallback((): string | null => {
-    if (!videoRef.current || !canvasRef.current) return null;
+  const drawFrame = useCallback((): boolean => {
+    if (!videoRef.current || !canvasRef.current) return false;
 
     const video = videoRef.current;
     const canvas = canvasRef.current;
     const ctx = canvas.getContext('2d');
 
-    if (!ctx || video.videoWidth === 0 || video.videoHeight === 0) return null;
+    if (!ctx || video.videoWidth === 0 || video.videoHeight === 0) return false;
 
     // Set canvas dimensions to match video
     canvas.width = video.videoWidth;
@@ -56,12 +57,43 @@ export const useRealEmotionDetection = (isActive: boolean) => {
 
     // Draw current video frame to canvas
     ctx.drawImage(video, 0, 0, canvas.width, canvas.height);
+    return true;
+  }, []);
+
+  const captureFrame = useCallback((): string | null => {
+    const canvas = canvasRef.current;
+    if (!canvas || !drawFrame()) return null;
 
     // Convert to base64 and remove the data URL prefix
     const dataUrl = canvas.toDataURL('image/jpeg', 0.8);
     // Remove "data:image/jpeg;base64," prefix to get just the base64 data
     return dataUrl.split(',')[1];
-  }, []);
+  }, [drawFrame]);
+
+  // Persistent channel: frames go up as binary, the server only answers when the emotion changes
+  useEffect(() => {
+    if (!isActive || !isConnected) return;
+
+    const protocol = window.location.protocol === 'https:' ? 'wss' : 'ws';
+    const socket = new WebSocket(
+      `${protocol}://${window.location.host}/api/emotion/stream?sessionId=${sessionId.current}`
+    );
+    socket.binaryType = 'arraybuffer';
+    socket.onmessage = (event) => {
+      const update = JSON.parse(event.data);
+      setCurrentEmotion({
+        emotion: update.emotion.toLowerCase() as EmotionType,
+        confidence: update.confidence,
+        timestamp: update.timestamp,
+      });
+    };
+    socketRef.current = socket;
+
+    return () => {
+      socketRef.current = null;
+      socket.close();
+    };
+  }, [isActive, isConnected]);
 
   const performEmotionDetection = useCallback(async () => {
     if (!isConnected) {
@@ -81,6 +113,17 @@ export const useRealEmotionDetection = (isActive: boolean) => {
       return;
     }
 
+    const socket = socketRef.current;
+    if (socket && socket.readyState === WebSocket.OPEN) {
+      // Skip this frame if the previous one has not left the browser yet
+      if (socket.bufferedAmount === 0 && canvasRef.current && drawFrame()) {
+        canvasRef.current.toBlob(blob => {
+          if (blob && socket.readyState === WebSocket.OPEN) socket.send(blob);
+        }, 'image/jpeg', 0.8);
+      }
+      return;
+    }
+
     const imageData = captureFrame();
     if (!imageData) return;
 
@@ -97,7 +140,7 @@ export const useRealEmotionDetection = (isActive: boolean) => {
       console.error('❌ Emotion detection failed:', err);
       setError('Emotion detection failed');
     }
-  }, [isConnected, captureFrame, detectEmotion]);
+  }, [isConnected, drawFrame, captureFrame, detectEmotion]);
 
   useEffect(() => {
     if (isActive) {
@@ -9,6 +9,23 @@ export interface ApiSong {
   mimeType: string;
 }
 
+export interface ApiSongSuggestion {
+  text: string;
+  type: 'title' | 'artist';
+  songId: number | null;
+}
+
+export interface ApiBulkDeleteStatus {
+  running: boolean;
+  resumed: boolean;
+  total: number;
+  deleted: number;
+  filesDeleted: number;
+  filesFailed: number;
+  startedAt: string;
+  finishedAt: string | null;
+}
+
 export interface ApiEmotionDetectionRequest {
   imageData: string; // Base64 encoded image
   sessionId: string;
@@ -21,6 +38,13 @@ export interface ApiEmotionDetectionResponse {
   sessionId: string;
 }
 
+export interface ApiRecommendation {
+  sessionId: string;
+  emotion: string;
+  nextEmotions: Record<string, number>;
+  songs: ApiSong[];
+}
+
 class ApiService {
   private async request<T>(endpoint: string, options: RequestInit = {}): Promise<T> {
     const url = endpoint.startsWith('/api/') ? endpoint : `/api${endpoint}`;
@@ -50,13 +74,30 @@ class ApiService {
     return response.json();
   }
 
+  // Song lists are paged; follow the X-Next-Cursor header until the last page
+  private async requestAllPages(endpoint: string): Promise<ApiSong[]> {
+    const songs: ApiSong[] = [];
+    let cursor: string | null = null;
+    do {
+      const separator = endpoint.includes('?') ? '&' : '?';
+      const url = cursor ? `${endpoint}${separator}cursor=${encodeURIComponent(cursor)}` : endpoint;
+      const response = await fetch(url);
+      if (!response.ok) {
+        throw new Error(`API Error: ${response.status} ${response.statusText}`);
+      }
+      songs.push(...(await response.json()));
+      cursor = response.headers.get('X-Next-Cursor');
+    } while (cursor);
+    return songs;
+  }
+
   // Song endpoints
   async getAllSongs(): Promise<ApiSong[]> {
-    return this.request<ApiSong[]>('/api/songs');
+    return this.requestAllPages('/api/songs');
   }
 
   async getSongsByEmotion(emotion: string): Promise<ApiSong[]> {
-    return this.request<ApiSong[]>(`/api/songs/emotion/${emotion}`);
+    return this.requestAllPages(`/api/songs/emotion/${emotion}`);
   }
 
   async getRandomSongsByEmotion(emotion: string): Promise<ApiSong[]> {
@@ -92,8 +133,36 @@ class ApiService {
     });
   }
 
+  // 202 starts a background job, 409 means one is already running; both return its status
+  async deleteAllSongs(): Promise<ApiBulkDeleteStatus> {
+    const response = await fetch('/api/songs/all', { method: 'DELETE' });
+    if (response.status !== 202 && response.status !== 409) {
+      throw new Error(`API Error: ${response.status} ${response.statusText}`);
+    }
+    return response.json();
+  }
+
+  async getDeleteAllStatus(): Promise<ApiBulkDeleteStatus> {
+    return this.request<ApiBulkDeleteStatus>('/api/songs/all/deletion');
+  }
+
+  async updateSongEmotion(songId: number, emotion: string): Promise<ApiSong> {
+    return this.request<ApiSong>(`/api/songs/${songId}/emotion?emotion=${encodeURIComponent(emotion)}`, {
+      method: 'PUT',
+    });
+  }
+
   async searchSongs(query: string): Promise<ApiSong[]> {
-    return this.request<ApiSong[]>(`/api/songs/search?q=${encodeURIComponent(query)}`);
+    return this.requestAllPages(`/api/songs/search?q=${encodeURIComponent(query)}`);
+  }
+
+  // Cheap enough to call on every keystroke, unlike searchSongs
+  async suggestSongs(prefix: string, limit?: number): Promise<ApiSongSuggestion[]> {
+    const params = new URLSearchParams({ prefix });
+    if (limit !== undefined) {
+      params.set('limit', String(limit));
+    }
+    return this.request<ApiSongSuggestion[]>(`/api/songs/suggest?${params}`);
   }
 
   // Emotion detection endpoints
@@ -110,7 +179,7 @@ class ApiService {
 
   // Playlist endpoints
   async getPlaylistByEmotion(emotion: string): Promise<ApiSong[]> {
-    return this.request<ApiSong[]>(`/api/playlists/emotion/${emotion}`);
+    return this.requestAllPages(`/api/playlists/emotion/${emotion}`);
   }
 
   async createPlaylistForEmotion(emotion: string): Promise<ApiSong[]> {
@@ -130,6 +199,27 @@ class ApiService {
       method: 'DELETE',
     });
   }
+
+  async getRecommendations(sessionId: string, emotion?: string, count?: number): Promise<ApiRecommendation> {
+    const params = new URLSearchParams({ sessionId });
+    if (emotion !== undefined) {
+      params.set('emotion', emotion);
+    }
+    if (count !== undefined) {
+      params.set('count', String(count));
+    }
+    return this.request<ApiRecommendation>(`/api/playlists/recommendations?${params}`);
+  }
+
+  async changePlaylistSongs(
+    emotion: string,
+    changes: { add?: number[]; remove?: number[] },
+  ): Promise<{ added: number; removed: number; unknownSongIds: number[] }> {
+    return this.request(`/api/playlists/emotion/${emotion}/songs`, {
+      method: 'POST',
+      body: JSON.stringify(changes),
+    });
+  }
 }
 
 export const apiService = new ApiService();